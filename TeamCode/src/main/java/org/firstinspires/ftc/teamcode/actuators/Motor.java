@@ -3,11 +3,18 @@ package org.firstinspires.ftc.teamcode.actuators;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
+import org.firstinspires.ftc.teamcode.instrument.Instrument;
+import org.firstinspires.ftc.teamcode.instrument.Probe;
+
 public class Motor {
     private DcMotor motor;
+    private Probe powerProbe;
+    private Probe encoderProbe;
 
     public Motor(HardwareMap map, MotorConfig config) {
         try {
+            powerProbe = Instrument.probe(config.name, "power");
+            encoderProbe = Instrument.probe(config.name, "encoder");
             motor = map.dcMotor.get(config.name);
             if (config.reverse) {
                 motor.setDirection(DcMotor.Direction.REVERSE);
@@ -25,7 +32,9 @@ public class Motor {
         if (!isAvailable()) {
             return;
         }
+        long start = Instrument.start();
         motor.setPower(power);
+        powerProbe.stop(start);
     }
 
     public void stop() {
@@ -36,6 +45,9 @@ public class Motor {
         if (!isAvailable()) {
             return 0;
         }
-        return motor.getCurrentPosition();
+        long start = Instrument.start();
+        int position = motor.getCurrentPosition();
+        encoderProbe.stop(start);
+        return position;
     }
 }
@@ -3,13 +3,21 @@ package org.firstinspires.ftc.teamcode.actuators;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.hardware.Servo;
 
+import org.firstinspires.ftc.teamcode.instrument.Instrument;
+import org.firstinspires.ftc.teamcode.instrument.Probe;
+
 public class ServoFTC {
     private Servo servo;
     private Double min;
     private Double max;
+    private Probe positionProbe;
+
+    // Last position written to the device, to elide redundant writes
+    private double position = Double.NaN;
 
     public ServoFTC(HardwareMap map, ServoFTCConfig config) {
         try {
+            positionProbe = Instrument.probe(config.name, "position");
             servo = map.servo.get(config.name);
             if (config.reverse) {
                 servo.setDirection(Servo.Direction.REVERSE);
@@ -38,7 +46,14 @@ public class ServoFTC {
         if (!isAvailable()) {
             return;
         }
+        if (position == this.position) {
+            positionProbe.avoided();
+            return;
+        }
+        long start = Instrument.start();
         servo.setPosition(position);
+        positionProbe.stop(start);
+        this.position = position;
     }
 
     public void min() {
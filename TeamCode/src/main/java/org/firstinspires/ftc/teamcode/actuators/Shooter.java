@@ -0,0 +1,283 @@
+package org.firstinspires.ftc.teamcode.actuators;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/**
+ * Cam shooter driven by encoder position and velocity
+ * <p>
+ * Each shot is one cycle of the cam. Rather than spinning a full cycle per shot and waiting a
+ * fixed time for the next ball, the cam is wound to just short of the release point as soon
+ * as a shot leaves, with the blocker down so the next ball can drop in. A ball landing on the
+ * cocked cam nudges the encoder, which marks the shooter ready; the next queued shot then
+ * needs only the short turn from the cocked point through the release.
+ * <p>
+ * The encoder is read once per {@link #loop(double)} and also gives a filtered velocity,
+ * used to cut power early so the cam coasts onto the cocked point and to detect a jam.
+ * <p>
+ * Where the cam rests at startup is unknown; autonomous usually leaves it cocked. The shooter
+ * does not move until the first {@link #fire(int)}, and that shot is a full cycle from
+ * wherever the cam is, as the fixed SHOOTER_INCR routines did. Winding to the cocked point
+ * starts only once that cycle has put the cam at a known position.
+ */
+public class Shooter {
+    public static final int DEFAULT_TICKS_PER_SHOT = 3550;
+    public static final double DEFAULT_POWER = 1.0;
+
+    // TODO: Tune against the real cam
+    // Fraction of the cycle wound before a shot is requested; must stop short of the release
+    private static final double COCKED_FRACTION = 0.85;
+    // Time for the cam to stop after power is cut, as seconds of travel at the current velocity
+    private static final double COAST_TIME = 0.05;
+    // Time for the blocker to rise before the cam releases
+    private static final double BLOCKER_SETTLE = 0.15;
+    // Cam travel that marks a ball landing, and the load wait bounds
+    private static final int LOAD_TICKS = 15;
+    private static final double LOAD_MIN = 0.2;
+    private static final double LOAD_TIMEOUT = 1.0;
+    // Velocity below which the cam is stopped, in ticks per second
+    private static final int STOPPED_VELOCITY = 100;
+    // Time spent stopped under power before we declare a jam
+    private static final double STALL_TIME = 0.5;
+    // Weight of the newest sample in the velocity filter
+    private static final double VELOCITY_FILTER = 0.5;
+
+    public enum State { IDLE, RELOAD, SETTLE, LOAD, READY, OPEN, FIRE, JAMMED, STOPPED }
+
+    private final Motor motor;
+    private final ServoFTC blocker;
+    private final int ticksPerShot;
+    private final int cocked;
+    private final double power;
+
+    private State state = State.IDLE;
+    private int cycleStart = 0;
+    private int position = 0;
+    private int parked = 0;
+    private double velocity = 0;
+    // Last power written, to elide redundant writes
+    private double applied = 0;
+    private double lastTime = -1;
+    private double stateTime = 0;
+    private double loadStart = 0;
+    private double stallStart = -1;
+    private boolean loaded = false;
+    // True once a full cycle has put the cam at a known position
+    private boolean cycled = false;
+    private int pending = 0;
+    private int shots = 0;
+
+    public Shooter(Motor motor, ServoFTC blocker) {
+        this(motor, blocker, DEFAULT_TICKS_PER_SHOT, DEFAULT_POWER);
+    }
+
+    /**
+     * @param ticksPerShot Encoder ticks in one cam cycle
+     * @param power        Motor power while winding and firing
+     */
+    public Shooter(Motor motor, ServoFTC blocker, int ticksPerShot, double power) {
+        this.motor = motor;
+        this.blocker = blocker;
+        this.ticksPerShot = ticksPerShot;
+        this.cocked = (int) (ticksPerShot * COCKED_FRACTION);
+        this.power = power;
+    }
+
+    public boolean isAvailable() {
+        return motor.isAvailable();
+    }
+
+    /**
+     * Queue shots, fired as soon as the shooter is ready for each. Retries after a jam with a
+     * full cycle, since the jam leaves the cam at an unknown point.
+     */
+    public void fire(int count) {
+        if (State.JAMMED.equals(state)) {
+            cycled = false;
+            enter(State.IDLE, lastTime);
+        }
+        pending += count;
+    }
+
+    public void fire() {
+        fire(1);
+    }
+
+    /**
+     * Drop queued shots that have not started
+     */
+    public void cancel() {
+        if (State.OPEN.equals(state)) {
+            blocker.max(); // Max is down
+            enter(cycled ? State.READY : State.IDLE, lastTime);
+        }
+        pending = 0;
+    }
+
+    public void stop() {
+        motor.stop();
+        applied = 0;
+        pending = 0;
+        state = State.STOPPED;
+    }
+
+    /**
+     * @param time OpMode time in seconds
+     */
+    public void loop(double time) {
+        if (!isAvailable() || State.STOPPED.equals(state)) {
+            return;
+        }
+        int last = position;
+        position = motor.getEncoder();
+        if (lastTime >= 0 && time > lastTime) {
+            double sample = (position - last) / (time - lastTime);
+            velocity += (sample - velocity) * VELOCITY_FILTER;
+        }
+        lastTime = time;
+
+        switch (state) {
+            case IDLE:
+                // Hold still until asked, then fire a full cycle from here
+                if (pending > 0) {
+                    cycleStart = position;
+                    blocker.min(); // Min is up
+                    enter(State.OPEN, time);
+                }
+                break;
+            case RELOAD:
+                // Wind to the cocked point, cutting power early by the expected coast
+                if (position + (velocity * COAST_TIME) >= cycleStart + cocked) {
+                    setPower(0);
+                    enter(State.SETTLE, time);
+                } else {
+                    run(time);
+                }
+                break;
+            case SETTLE:
+                if (Math.abs(velocity) < STOPPED_VELOCITY) {
+                    parked = position;
+                    enter(State.LOAD, time);
+                }
+                break;
+            case LOAD:
+                // A ball dropping onto the cocked cam moves it a little
+                boolean landed = Math.abs(position - parked) >= LOAD_TICKS;
+                if ((landed && time >= loadStart + LOAD_MIN) || time >= loadStart + LOAD_TIMEOUT) {
+                    loaded = landed;
+                    enter(State.READY, time);
+                }
+                break;
+            case READY:
+                if (pending > 0) {
+                    blocker.min(); // Min is up
+                    enter(State.OPEN, time);
+                }
+                break;
+            case OPEN:
+                if (time >= stateTime + BLOCKER_SETTLE) {
+                    enter(State.FIRE, time);
+                }
+                break;
+            case FIRE:
+                if (position >= cycleStart + ticksPerShot) {
+                    // Released; keep the motor running straight into the next wind
+                    shots++;
+                    pending--;
+                    loaded = false;
+                    cycled = true;
+                    cycleStart += ticksPerShot;
+                    blocker.max();
+                    loadStart = time;
+                    enter(State.RELOAD, time);
+                } else {
+                    run(time);
+                }
+                break;
+            case JAMMED:
+                break;
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return True when cocked and waiting for a shot
+     */
+    public boolean isReady() {
+        return State.READY.equals(state);
+    }
+
+    /**
+     * @return True if a ball was seen to land on the cam since the last shot
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean isJammed() {
+        return State.JAMMED.equals(state);
+    }
+
+    /**
+     * @return Shots queued and not yet released
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    public int getShots() {
+        return shots;
+    }
+
+    /**
+     * @return Ticks into the current cam cycle
+     */
+    public int getCyclePosition() {
+        return position - cycleStart;
+    }
+
+    /**
+     * @return Filtered cam velocity in ticks per second
+     */
+    public double getVelocity() {
+        return velocity;
+    }
+
+    public void display(Telemetry telemetry) {
+        telemetry.addData("Shooter", "%s %d/%d %d t/s %d shots%s", state, getCyclePosition(),
+                ticksPerShot, (int) velocity, shots, loaded ? " (loaded)" : "");
+    }
+
+    /**
+     * Helpers
+     */
+
+    private void enter(State state, double time) {
+        this.state = state;
+        stateTime = time;
+        stallStart = -1;
+    }
+
+    // Power the cam, giving up if it stays stopped
+    private void run(double time) {
+        setPower(power);
+        if (Math.abs(velocity) >= STOPPED_VELOCITY) {
+            stallStart = -1;
+        } else if (stallStart < 0) {
+            stallStart = time;
+        } else if (time > stallStart + STALL_TIME) {
+            setPower(0);
+            pending = 0;
+            enter(State.JAMMED, time);
+        }
+    }
+
+    private void setPower(double power) {
+        if (power != applied) {
+            motor.setPower(power);
+            applied = power;
+        }
+    }
+}
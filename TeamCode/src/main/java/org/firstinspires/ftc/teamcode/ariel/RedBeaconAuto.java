@@ -1,13 +1,12 @@
 package org.firstinspires.ftc.teamcode.ariel;
 
-import com.qualcomm.hardware.modernrobotics.ModernRoboticsI2cRangeSensor;
 import com.qualcomm.robotcore.eventloop.opmode.Disabled;
-import com.qualcomm.robotcore.hardware.ColorSensor;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 import com.qualcomm.robotcore.hardware.LightSensor;
 import com.qualcomm.robotcore.hardware.Servo;
 
-import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.teamcode.sensors.Color;
+import org.firstinspires.ftc.teamcode.sensors.Range;
 
 /**
  * Created by robotics on 11/11/2016.
@@ -19,10 +18,10 @@ public class RedBeaconAuto extends FourWheelAutoMethods {
 
     Servo leftBooper;
     Servo rightBooper;
-    ColorSensor frontColor;
-    ColorSensor backColor;
+    Color frontColor;
+    Color backColor;
     LightSensor light;
-    ModernRoboticsI2cRangeSensor distance;
+    Range distance;
 
     //Not sure if these are needed
     static int[] RED_VAL_ON_WHITE;
@@ -54,23 +53,22 @@ public class RedBeaconAuto extends FourWheelAutoMethods {
         initMotors("front left", "back left", "front right", "back right");
         backRightMotor.setDirection(DcMotorSimple.Direction.REVERSE);
         frontLeftMotor.setDirection(DcMotorSimple.Direction.REVERSE);
-        frontColor = hardwareMap.colorSensor.get("color sensor1");
-        backColor = hardwareMap.colorSensor.get("color sensor2");
+        frontColor = new Color(hardwareMap, "color sensor1");
+        backColor = new Color(hardwareMap, "color sensor2");
         //light = hardwareMap.lightSensor.get("light");
-        distance = hardwareMap.get(ModernRoboticsI2cRangeSensor.class, "ultrasound");
-        distance.initialize();
-        distance.enableLed(true);
-        frontColor.enableLed(true);
-        backColor.enableLed(true);
+        distance = new Range(hardwareMap, "ultrasound");
+        distance.setLED(true);
+        frontColor.setLED(true);
+        backColor.setLED(true);
         //light.enableLed(false);
         CollectTelemetry();
     }
 
-    public boolean isColorSensorOnWhite(ColorSensor sensor) {
+    public boolean isColorSensorOnWhite(Color sensor) {
         return sensor.alpha() > WHITE_ALPHA_THRESHOLD;
     }
 
-    public boolean isColorSensorOnGray(ColorSensor sensor) {
+    public boolean isColorSensorOnGray(Color sensor) {
         return sensor.alpha() < WHITE_ALPHA_THRESHOLD;
     }
 
@@ -81,9 +79,10 @@ public class RedBeaconAuto extends FourWheelAutoMethods {
 
     @Override
     public void loop() {
-        distance.enableLed(true);
-        frontColor.enableLed(true);
-        backColor.enableLed(true);
+        // Redundant LED writes are elided by the sensor wrappers
+        distance.setLED(true);
+        frontColor.setLED(true);
+        backColor.setLED(true);
         CollectTelemetry();
 
         switch (stateCounter) {
@@ -137,7 +136,7 @@ public class RedBeaconAuto extends FourWheelAutoMethods {
                 }
                 break;
             case 5:
-                if(distance.getDistance(DistanceUnit.CM) < NEAR_WALL) {
+                if(distance.getRange() < NEAR_WALL) {
                     frontOnWhite = isColorSensorOnWhite(frontColor);
                     backOnWhite = isColorSensorOnWhite(backColor);
                     if(frontOnWhite) {
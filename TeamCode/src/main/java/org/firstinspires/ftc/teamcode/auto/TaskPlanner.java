@@ -0,0 +1,314 @@
+package org.firstinspires.ftc.teamcode.auto;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/**
+ * Chooses the next autonomous task to fit the time left in the period
+ * <p>
+ * Each task has a point value, a success rate and the durations of its last
+ * {@link #HISTORY} successful runs, saved between runs in SharedPreferences the way
+ * BeaconColor keeps its calibration. Until a task has history its prior duration and success
+ * rate stand in.
+ * <p>
+ * {@link #next(double)} tries every order of the tasks not yet attempted, subject to which
+ * tasks may follow which, and picks the order with the most expected points. A task is worth
+ * its points times its success rate times the chance, from its recorded durations, that it
+ * finishes in the time left when it starts. Later tasks are reserved a high quantile of their
+ * durations. The chosen task gets the time the rest of its plan does not need, and
+ * {@link #isOverdue(double)} reports when it has used that up so the routine can move on.
+ */
+public class TaskPlanner {
+    // Autonomous period, in seconds
+    public static final double BUDGET = 30.0;
+    public static final int HISTORY = 16;
+    public static final int MAX_TASKS = 8;
+
+    // Predecessor for tasks that may run first
+    public static final int START = -1;
+
+    // Quantile of the recorded durations reserved for tasks later in the plan
+    private static final float RESERVE_QUANTILE = 0.8f;
+    // Pseudo-attempts given to the prior success rate
+    private static final int PRIOR_WEIGHT = 2;
+
+    private static final String PREFS_NAME = "TaskPlanner";
+    private static final String PREFS_DURATIONS = "-durations";
+    private static final String PREFS_ATTEMPTS = "-attempts";
+    private static final String PREFS_SUCCESSES = "-successes";
+    private static final String PREFS_SEPARATOR = ",";
+
+    // Task definitions
+    private final String[] names = new String[MAX_TASKS];
+    private final int[] points = new int[MAX_TASKS];
+    private final int[] priorDuration = new int[MAX_TASKS];
+    private final float[] priorSuccess = new float[MAX_TASKS];
+    // Bit 0 for START, bit i + 1 for task i
+    private final int[] after = new int[MAX_TASKS];
+    private int count = 0;
+
+    // History: a ring of successful durations in ms, a sorted copy, and outcome counts
+    private final int[][] durations = new int[MAX_TASKS][HISTORY];
+    private final int[][] sorted = new int[MAX_TASKS][HISTORY];
+    private final int[] samples = new int[MAX_TASKS];
+    private final int[] oldest = new int[MAX_TASKS];
+    private final int[] attempts = new int[MAX_TASKS];
+    private final int[] successes = new int[MAX_TASKS];
+
+    // This run
+    private final boolean[] attempted = new boolean[MAX_TASKS];
+    private double start = 0;
+    private int previous = START;
+    private int current = -1;
+    private double taskStart = 0;
+    private double allowance = 0;
+
+    // Search scratch
+    private final int[] path = new int[MAX_TASKS];
+    private final int[] best = new int[MAX_TASKS];
+    private int bestLength = 0;
+    private double bestValue = 0;
+
+    /**
+     * @param points       Expected points if the task succeeds
+     * @param priorMs      Duration in ms to assume until the task has history
+     * @param priorSuccess Success rate to assume until the task has history
+     * @return The new task's index
+     */
+    public int add(String name, int points, int priorMs, float priorSuccess) {
+        if (count >= MAX_TASKS) {
+            throw new IllegalStateException("TaskPlanner is limited to " + MAX_TASKS + " tasks");
+        }
+        names[count] = name;
+        this.points[count] = points;
+        priorDuration[count] = priorMs;
+        this.priorSuccess[count] = priorSuccess;
+        return count++;
+    }
+
+    /**
+     * Allow a task to run directly after another, or first
+     *
+     * @param predecessor A task index or {@link #START}
+     */
+    public void allowAfter(int task, int predecessor) {
+        after[task] |= 1 << (predecessor + 1);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public String getName(int task) {
+        return names[task];
+    }
+
+    /**
+     * Begin the budget
+     *
+     * @param time OpMode time in seconds
+     */
+    public void start(double time) {
+        start = time;
+        previous = START;
+        current = -1;
+        for (int i = 0; i < count; i++) {
+            attempted[i] = false;
+        }
+    }
+
+    /**
+     * @return Seconds left in the period
+     */
+    public double getRemaining(double time) {
+        return Math.max(0, start + BUDGET - time);
+    }
+
+    /**
+     * @return The task to run next, or -1 if nothing left is worth starting
+     */
+    public int next(double time) {
+        int remaining = (int) (getRemaining(time) * 1000);
+        bestLength = 0;
+        bestValue = 0;
+        search(previous, 0, 0, 0, remaining);
+        if (bestLength == 0) {
+            return -1;
+        }
+
+        // The first task may use whatever the rest of the best plan does not need
+        int reserved = 0;
+        for (int i = 1; i < bestLength; i++) {
+            reserved += quantile(best[i], RESERVE_QUANTILE);
+        }
+        allowance = Math.max(quantile(best[0], RESERVE_QUANTILE), remaining - reserved) / 1000.0;
+        return best[0];
+    }
+
+    public void begin(int task, double time) {
+        current = task;
+        taskStart = time;
+    }
+
+    /**
+     * Record the outcome of the current task
+     */
+    public void finish(double time, boolean success) {
+        if (current < 0) {
+            return;
+        }
+        attempts[current]++;
+        if (success) {
+            successes[current]++;
+            record(current, (int) ((time - taskStart) * 1000));
+        }
+        attempted[current] = true;
+        previous = current;
+        current = -1;
+    }
+
+    /**
+     * @return The running task, or -1
+     */
+    public int getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return True if the running task has used up its share of the budget
+     */
+    public boolean isOverdue(double time) {
+        return current >= 0 && time - taskStart > allowance;
+    }
+
+    public void display(Telemetry telemetry, double time) {
+        telemetry.addData("Task", "%s %.1f/%.1fs, %.1fs left",
+                current >= 0 ? names[current] : "-", current >= 0 ? time - taskStart : 0.0,
+                current >= 0 ? allowance : 0.0, getRemaining(time));
+    }
+
+    public void load(Context context) {
+        if (context == null) {
+            return;
+        }
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        for (int i = 0; i < count; i++) {
+            attempts[i] = prefs.getInt(names[i] + PREFS_ATTEMPTS, 0);
+            successes[i] = prefs.getInt(names[i] + PREFS_SUCCESSES, 0);
+            samples[i] = 0;
+            oldest[i] = 0;
+            String list = prefs.getString(names[i] + PREFS_DURATIONS, "");
+            for (String s : list.split(PREFS_SEPARATOR)) {
+                try {
+                    record(i, Integer.parseInt(s));
+                } catch (NumberFormatException e) {
+                    // Skip empty and corrupt entries
+                }
+            }
+        }
+    }
+
+    public boolean save(Context context) {
+        if (context == null) {
+            return false;
+        }
+        SharedPreferences.Editor edit = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit();
+        for (int i = 0; i < count; i++) {
+            StringBuilder list = new StringBuilder();
+            // Oldest first, so the ring refills in the same order
+            for (int j = 0; j < samples[i]; j++) {
+                if (j > 0) {
+                    list.append(PREFS_SEPARATOR);
+                }
+                list.append(durations[i][(oldest[i] + j) % samples[i]]);
+            }
+            edit.putString(names[i] + PREFS_DURATIONS, list.toString())
+                    .putInt(names[i] + PREFS_ATTEMPTS, attempts[i])
+                    .putInt(names[i] + PREFS_SUCCESSES, successes[i]);
+        }
+        return edit.commit();
+    }
+
+    /**
+     * Helpers
+     */
+
+    // Depth-first over the orders of the unattempted tasks that may follow prev
+    private void search(int prev, int depth, int elapsed, double value, int remaining) {
+        if (value > bestValue) {
+            bestValue = value;
+            bestLength = depth;
+            System.arraycopy(path, 0, best, 0, depth);
+        }
+        for (int t = 0; t < count; t++) {
+            if (attempted[t] || onPath(t, depth) || (after[t] & (1 << (prev + 1))) == 0) {
+                continue;
+            }
+            double fit = fraction(t, remaining - elapsed);
+            if (fit <= 0) {
+                continue;
+            }
+            path[depth] = t;
+            search(t, depth + 1, elapsed + quantile(t, RESERVE_QUANTILE),
+                    value + (points[t] * successRate(t) * fit), remaining);
+        }
+    }
+
+    private boolean onPath(int task, int depth) {
+        for (int i = 0; i < depth; i++) {
+            if (path[i] == task) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double successRate(int task) {
+        return (successes[task] + (priorSuccess[task] * PRIOR_WEIGHT)) / (attempts[task] + PRIOR_WEIGHT);
+    }
+
+    // Fraction of recorded durations no longer than ms
+    private double fraction(int task, int ms) {
+        if (samples[task] == 0) {
+            return priorDuration[task] <= ms ? 1 : 0;
+        }
+        int n = 0;
+        while (n < samples[task] && sorted[task][n] <= ms) {
+            n++;
+        }
+        return (double) n / samples[task];
+    }
+
+    private int quantile(int task, float q) {
+        if (samples[task] == 0) {
+            return priorDuration[task];
+        }
+        int i = Math.min(samples[task] - 1, (int) (q * samples[task]));
+        return sorted[task][i];
+    }
+
+    // Add a duration to the ring, replacing the oldest once full, and refresh the sorted copy
+    private void record(int task, int ms) {
+        if (samples[task] < HISTORY) {
+            durations[task][samples[task]++] = ms;
+        } else {
+            durations[task][oldest[task]] = ms;
+            oldest[task] = (oldest[task] + 1) % HISTORY;
+        }
+        int n = samples[task];
+        int[] s = sorted[task];
+        System.arraycopy(durations[task], 0, s, 0, n);
+        // Insertion sort; n is tiny
+        for (int i = 1; i < n; i++) {
+            int v = s[i];
+            int j = i - 1;
+            while (j >= 0 && s[j] > v) {
+                s[j + 1] = s[j];
+                j--;
+            }
+            s[j + 1] = v;
+        }
+    }
+}
@@ -3,31 +3,61 @@ package org.firstinspires.ftc.teamcode.auto;
 import com.qualcomm.robotcore.eventloop.opmode.Disabled;
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 
+import org.firstinspires.ftc.teamcode.command.Command;
+import org.firstinspires.ftc.teamcode.command.CommandGroup;
+import org.firstinspires.ftc.teamcode.command.DriveToCommand;
+import org.firstinspires.ftc.teamcode.command.FireCommand;
+import org.firstinspires.ftc.teamcode.command.ServoCommand;
 import org.firstinspires.ftc.teamcode.field.Field;
+import org.firstinspires.ftc.teamcode.field.Geometry;
+import org.firstinspires.ftc.teamcode.field.Landmark;
 import org.firstinspires.ftc.teamcode.driveto.DriveTo;
 import org.firstinspires.ftc.teamcode.driveto.DriveToComp;
 import org.firstinspires.ftc.teamcode.driveto.DriveToListener;
 import org.firstinspires.ftc.teamcode.driveto.DriveToParams;
+import org.firstinspires.ftc.teamcode.instrument.Instrument;
+import org.firstinspires.ftc.teamcode.instrument.LatencyHistogram;
+import org.firstinspires.ftc.teamcode.instrument.Probe;
+import org.firstinspires.ftc.teamcode.navigation.GridPlanner;
+import org.firstinspires.ftc.teamcode.navigation.NavHint;
+import org.firstinspires.ftc.teamcode.navigation.Navigation;
+import org.firstinspires.ftc.teamcode.navigation.ParticleLocalizer;
+import org.firstinspires.ftc.teamcode.navigation.PathFollower;
+import org.firstinspires.ftc.teamcode.navigation.Trajectory;
+import org.firstinspires.ftc.teamcode.navigation.TrajectoryGenerator;
+import org.firstinspires.ftc.teamcode.sensors.BeaconColor;
+import org.firstinspires.ftc.teamcode.sensors.Color;
 import org.firstinspires.ftc.teamcode.sensors.Gyro;
+import org.firstinspires.ftc.teamcode.sensors.PollRate;
+import org.firstinspires.ftc.teamcode.sensors.PollScheduler;
+import org.firstinspires.ftc.teamcode.sensors.Range;
 import org.firstinspires.ftc.teamcode.actuators.Motor;
+import org.firstinspires.ftc.teamcode.actuators.Shooter;
 import org.firstinspires.ftc.teamcode.wheels.MotorSide;
 import org.firstinspires.ftc.teamcode.actuators.ServoFTC;
 import org.firstinspires.ftc.teamcode.wheels.TankDrive;
+import org.firstinspires.ftc.teamcode.vuforia.OdometryListener;
 import org.firstinspires.ftc.teamcode.vuforia.VuforiaFTC;
+import org.firstinspires.ftc.teamcode.vuforia.VuforiaRecorder;
 import org.firstinspires.ftc.teamcode.vuforia.VuforiaTarget;
 import org.firstinspires.ftc.teamcode.config.MotorConfigs;
 import org.firstinspires.ftc.teamcode.config.ServoConfigs;
+import org.firstinspires.ftc.teamcode.config.TrajectoryConfigs;
 import org.firstinspires.ftc.teamcode.config.VuforiaConfigs;
 import org.firstinspires.ftc.teamcode.config.WheelMotorConfigs;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.NoSuchElementException;
 
 @Disabled
 @com.qualcomm.robotcore.eventloop.opmode.Autonomous(name = "Vuforia Auto", group = "AutoTest")
-public class VuforiaAuto extends OpMode implements DriveToListener {
+public class VuforiaAuto extends OpMode implements DriveToListener, OdometryListener {
 
     // Driving constants
     private static final float GYRO_MIN_UPDATE_INTERVAL = 1.0f;
+    private static final boolean INSTRUMENT = false;
+    private static final boolean RECORD = false; // Vision log for VuforiaReplay
     private static final float ENCODER_PER_MM = 3.2f;
     private static final int ENCODER_INDEX = 2;
     private static final float SPEED_TURN = 0.1f;
@@ -38,14 +68,12 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
     private static final int TIMEOUT_DEGREE = 100;
     private static final int OVERRUN_GYRO = 2;
     private static final int OVERRUN_ENCODER = 25;
-    private static final float SPEED_SHOOT = 1.0f;
 
     // Autonomous routine constants
     private static final float GYRO_TIMEOUT = 5.0f;
     private static final int SHOOT_DISTANCE = 1850;
     private static final int SHOOT_SPIN = 3700;
     private static final int NUM_SHOTS = 2;
-    private static final float SHOT_DELAY = 1.0f;
     private static final int BALL_DISTANCE = 1100;
     private static final int TURN_IN_ANGLE = 5;
     private static final int PAST_BALL_DISTANCE = 1000;
@@ -53,53 +81,128 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
     private static final float FIND_TARGET_DELAY = 0.75f;
     private static final int FIND_TARGET_MAX = -BLIND_TURN + 60;
     private static final int FIND_TARGET_INCREMENT = FIND_TARGET_MAX / 5;
-    private static final String FIRST_TARGET_BLUE = "LEGO";
-    private static final String FIRST_TARGET_RED = "Tools";
     private static final int BLIND_BUMP = 1000;
-    private static final int DESTINATION_OFFSET = (int) (12 * Field.MM_PER_INCH);
     private static final int APPROACH_MIN = 400;
+    // Allowance beyond the profiled driving time
+    private static final float FOLLOW_TIMEOUT = 3.0f;
     private static final float BEACON_DELAY = 1.0f;
+    private static final String BEACON_SENSOR = "color";
 
-    // Numeric constants
-    private final static int FULL_CIRCLE = 360;
+    // Task values, and priors for the planner until it has history from real runs
+    // TODO: The priors are guesses
+    private static final int SHOT_POINTS = 15;
+    private static final int CAP_BALL_POINTS = 5;
+    private static final int BEACON_POINTS = 30;
+    private static final int PARK_POINTS = 5;
+    private static final int SHOOT_PRIOR_MS = 4000;
+    private static final int CAP_BALL_PRIOR_MS = 4000;
+    private static final int BEACON_PRIOR_MS = 15000;
+    private static final int PARK_PRIOR_MS = 6000;
+    private static final float SHOOT_PRIOR_SUCCESS = 0.9f;
+    private static final float CAP_BALL_PRIOR_SUCCESS = 0.8f;
+    private static final float BEACON_PRIOR_SUCCESS = 0.5f;
+    private static final float PARK_PRIOR_SUCCESS = 0.7f;
+    private static final String RANGE_SENSOR = "range";
+
+    // TODO: Imaginary until the range sensor is mounted; axis relative to the heading, and
+    // distance from the robot center to the sensor face. Range fusion stays off until then.
+    private static final boolean RANGE_FUSION = false;
+    private static final int RANGE_MOUNT = 90;
+    private static final int RANGE_MOUNT_OFFSET = (int) (9 * Field.MM_PER_INCH);
+    private static final int RANGE_ERR = 30;
+    // The ultrasonic reading refreshes far slower than the loop; an unchanged value is applied
+    // again only after this long, in seconds, so one echo is not counted many times over
+    // TODO: Measure against the real sensor
+    private static final double RANGE_PERIOD = 0.1;
+    // Readings at or beyond this are "no echo"
+    private static final int RANGE_MAX_CM = 255;
+    private static final int MM_PER_CM = 10;
+
+    // Localizer uncertainty at the start tile and per vision fix of quality 1.0
+    private static final int START_POSITION_ERR = 150;
+    private static final int START_HEADING_ERR = 5;
+    private static final int FIX_POSITION_ERR = 50;
+    private static final int FIX_HEADING_ERR = 3;
+    private static final float FIX_QUALITY_MIN = 0.1f;
 
     // Devices and subsystems
     private final Field.AllianceColor color;
     private VuforiaTarget[] config;
+    // Destination locations as parallel primitives for the per-loop math
+    private int[] destX;
+    private int[] destY;
     private VuforiaFTC vuforia;
+    private Navigation nav;
+    private GridPlanner planner;
+    private TrajectoryGenerator generator;
+    private PathFollower follower;
+    private Trajectory route;
     private TankDrive tank;
     private Gyro gyro;
+    private Color beaconSensor;
+    private Range range;
+    private ParticleLocalizer localizer;
+    private BeaconColor beaconColor;
+    private PollScheduler polling;
     private DriveTo drive;
-    private Motor shooter;
-    private ServoFTC blocker;
+    private Shooter shooter;
     private ServoFTC booperLeft;
     private ServoFTC booperRight;
 
+    // Command graphs, built in init() and run by runCommand()
+    private Command gyroWait;
+    private Command shoot;
+    private Command capBall;
+    private Command pressLeft;
+    private Command pressRight;
+    private Command backAway;
+
+    // Autonomous tasks, and the state that begins each
+    private TaskPlanner tasks;
+    private AUTO_STATE[] taskStates;
+    private int parkX;
+    private int parkY;
+
+    // Loop period, for judging the vision budget
+    private Probe loopProbe;
+    private long loopStart = 0;
+
     // Dynamic things we need to remember
     private double headingSyncExpires = 0;
-    private AUTO_STATE state = AUTO_STATE.INIT;
-    private int shots = 0;
+    private AUTO_STATE state = AUTO_STATE.first;
+    private Command command = null;
+    private boolean taskSuccess = false;
+    private boolean gyroChecked = false;
+    private String routeName = null;
     private double timer = 0.0;
     private int target = -1;
     private Field.AllianceColor beacon = null;
     private int findTurnAccumulator = 0;
+    private boolean findPredicted = false;
+    private Trajectory trajectory = null;
+    private int lastOdometryHeading = 0;
+    private int lastOdometryDistance = 0;
+    private double lastPredict = 0.0;
+    private long lastFix = 0;
+    private int lastRange = 0;
+    private double lastRangeTime = 0.0;
     private boolean waiting = false;
+    // Set by driveRoute() once done: true if we got there, false if we gave up
+    private boolean routeArrived = false;
+    private boolean routeDirect = false;
+    private boolean driveTimedOut = false;
     private double autodriveComplete = 0.0;
 
     // Sensor reference types for our DriveTo callbacks
     enum SENSOR_TYPE {
-        GYRO, DRIVE_ENCODER, SHOOT_ENCODER
+        GYRO, DRIVE_ENCODER
     }
 
     // Enum for the main state machine
     enum AUTO_STATE {
-        INIT,
-        DRIVE_TO_SHOOT,
+        PLAN,
         SHOOT,
-        SHOOT_WAIT,
-        DRIVE_TO_BALL,
-        TURN_IN,
-        DRIVE_PAST_BALL,
+        CAP_BALL,
         BLIND_TURN,
         FIND_TARGET,
         FIND_TARGET_WAIT,
@@ -114,8 +217,9 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
         BUMP_WALL,
         CHECK_COLOR,
         PRESS_BEACON,
-        BEACON_WAIT,
         BACK_AWAY,
+        PARK,
+        PARK_DRIVE,
         DONE;
 
         // Private static copy to avoid repeated calls to values()
@@ -137,7 +241,7 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
             return values[i];
         }
 
-        public static final AUTO_STATE first = INIT;
+        public static final AUTO_STATE first = PLAN;
         public static final AUTO_STATE last = DONE;
     }
 
@@ -148,46 +252,97 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
     @Override
     public void init() {
 
-        // Placate drivers; sometimes VuforiaFTC is slow to init
-        telemetry.addData(">", "Initializing...");
-        telemetry.update();
+        // Hardware latency instrumentation, if enabled
+        Instrument.setEnabled(INSTRUMENT);
+        Instrument.reset();
+        loopProbe = Instrument.probe("OpMode", "loop");
 
         // Sensors
         gyro = new Gyro(hardwareMap, "gyro");
         if (!gyro.isAvailable()) {
             telemetry.log().add("ERROR: Unable to initalize gyro");
         }
+        beaconSensor = new Color(hardwareMap, BEACON_SENSOR);
+        if (!beaconSensor.isAvailable()) {
+            telemetry.log().add("ERROR: Unable to initalize beacon color sensor");
+        }
+        beaconColor = new BeaconColor(beaconSensor, BEACON_SENSOR);
+        beaconColor.load(hardwareMap.appContext);
+        polling = new PollScheduler();
+        polling.add("Gyro", gyro);
+        polling.add("Color", beaconSensor);
+        range = new Range(hardwareMap, RANGE_SENSOR);
+        if (!range.isAvailable()) {
+            telemetry.log().add("NOTICE: No range sensor; localizing without it");
+        }
 
         // Drive motors
         tank = new WheelMotorConfigs().init(hardwareMap, telemetry);
         tank.stop();
 
-        // Shooter motor
-        shooter = new MotorConfigs().init(hardwareMap, telemetry, "SHOOTER");
-        shooter.stop();
-
         // Servos
         ServoConfigs servos = new ServoConfigs();
-        blocker = servos.init(hardwareMap, telemetry, "BLOCKER");
+        ServoFTC blocker = servos.init(hardwareMap, telemetry, "BLOCKER");
         blocker.max(); // Max is down
         booperLeft = servos.init(hardwareMap, telemetry, "BOOPER-LEFT");
         booperLeft.min();
         booperRight = servos.init(hardwareMap, telemetry, "BOOPER-RIGHT");
         booperRight.min();
 
+        // Shooter; it owns the blocker from here on
+        Motor shooterMotor = new MotorConfigs().init(hardwareMap, telemetry, "SHOOTER");
+        shooterMotor.stop();
+        shooter = new Shooter(shooterMotor, blocker, SHOOT_SPIN, Shooter.DEFAULT_POWER);
+
         // Vuforia
         config = VuforiaConfigs.Field();
+        destX = new int[config.length];
+        destY = new int[config.length];
+        for (int i = 0; i < config.length; i++) {
+            int[] dest = VuforiaConfigs.Destination(config[i]);
+            destX[i] = dest[0];
+            destY[i] = dest[1];
+        }
         vuforia = new VuforiaFTC(VuforiaConfigs.AssetName, VuforiaConfigs.TargetCount,
                 config, VuforiaConfigs.Bot());
-        vuforia.init();
-
-        // Wait for the game to begin
-        telemetry.addData(">", "Ready for game start");
-        telemetry.update();
+        vuforia.setThreaded(true);
+        vuforia.setOdometry(this);
+        // All targets stay active; the search states and localization use both alliances' walls
+        vuforia.setProfile(VuforiaConfigs.Profile());
+        if (RECORD) {
+            try {
+                vuforia.setRecorder(new VuforiaRecorder(VuforiaRecorder.defaultFile(), VuforiaConfigs.TargetCount));
+            } catch (IOException e) {
+                telemetry.log().add("ERROR: Unable to open Vuforia log: " + e.getMessage());
+            }
+        }
+        vuforia.initAsync();
+        nav = new Navigation(this, tank, vuforia, gyro);
+        planner = TrajectoryConfigs.Planner();
+        generator = TrajectoryConfigs.Generator();
+        follower = new PathFollower(tank);
+        localizer = new ParticleLocalizer();
+        try {
+            route = Trajectory.read(hardwareMap.appContext.getAssets().open(TrajectoryConfigs.AssetName(color)));
+        } catch (IOException e) {
+            telemetry.log().add("ERROR: Unable to load route: " + e.getMessage());
+        }
+        buildCommands();
+        buildTasks();
+        tasks.load(hardwareMap.appContext);
     }
 
     @Override
     public void init_loop() {
+        // VuforiaFTC loads in the background; start() will activate it whenever it is ready
+        if (vuforia.isFailed()) {
+            telemetry.addData(">", "Vuforia failed to initialize");
+        } else if (!vuforia.isReady()) {
+            telemetry.addData(">", "Initializing Vuforia...");
+        } else {
+            telemetry.addData(">", "Ready for game start");
+        }
+        telemetry.update();
     }
 
     @Override
@@ -197,13 +352,24 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
         // Start Vuforia tracking
         vuforia.start();
 
+        // Start the localizer on our start tile
+        Landmark tile = Field.find(Landmark.Type.START, color);
+        localizer.reset(tile.x, tile.y, tile.facing, START_POSITION_ERR, START_HEADING_ERR);
+        lastOdometryHeading = odometryHeading();
+        lastOdometryDistance = odometryDistance();
+        lastPredict = time;
+
         // Steady...
+        tasks.start(time);
         state = AUTO_STATE.first;
-        timer = time + GYRO_TIMEOUT;
     }
 
     @Override
     public void loop() {
+        // Time from the previous loop() to this one
+        loopProbe.stop(loopStart);
+        loopStart = Instrument.start();
+
         // Handle DriveTo driving
         if (drive != null) {
             // DriveTo
@@ -211,15 +377,35 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
 
             // Return to teleop when complete
             if (drive.isDone()) {
+                driveTimedOut = drive.isTimeout();
                 drive = null;
                 tank.setTeleop(true);
                 autodriveComplete = time;
             }
         }
 
+        // Spend I2C reads on the sensors this state consumes
+        schedulePolling();
+
+        // Dead-reckon every loop, even while DriveTo has control
+        localize();
+
+        // Keep the shooter firing and cocked whatever else is running
+        shooter.loop(time);
+
+        // Move on from a task that has used up its share of the period
+        if (tasks.isOverdue(time)) {
+            abandonTask();
+        }
+
         // Driver feedback
         telemetry.addData("State", state);
         vuforia.display(telemetry);
+        tasks.display(telemetry, time);
+        localizer.display(telemetry);
+        shooter.display(telemetry);
+        polling.display(telemetry);
+        Instrument.display(telemetry);
         telemetry.addData("Encoder", tank.getEncoder(ENCODER_INDEX));
         if (!gyro.isReady()) {
             telemetry.addData("Gyro", "Calibrating (DO NOT DRIVE): %d", (int) time);
@@ -233,6 +419,8 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
          * This keeps us out of the state machine until the last auto-drive command is complete
          */
         if (drive != null) {
+            // Keep the odometry history whole so the next fix extrapolates across this move
+            vuforia.updateOdometry();
             return;
         }
 
@@ -248,59 +436,45 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
         // Main state machine
         int angle = 0;
         int bearing;
-        DriveToParams param;
         switch (state) {
-            case INIT:
-                if (gyro.isReady()) {
-                    state = AUTO_STATE.DRIVE_TO_SHOOT;
-                } else if (timer < time) {
-                    gyro.disable();
-                    state = state.next();
+            case PLAN:
+                if (tasks.getCurrent() >= 0) {
+                    telemetry.log().add("Task " + tasks.getName(tasks.getCurrent()) +
+                            (taskSuccess ? " complete" : " failed"));
+                    tasks.finish(time, taskSuccess);
                 }
-                break;
-            case DRIVE_TO_SHOOT:
-                driveForward(SHOOT_DISTANCE);
-                state = state.next();
+                int task = tasks.next(time);
+                if (task < 0) {
+                    telemetry.log().add("No task fits in " + (int) tasks.getRemaining(time) + "s");
+                    state = AUTO_STATE.last;
+                    break;
+                }
+                // Only the opening shot can start before the gyro settles
+                if (!gyroChecked && !AUTO_STATE.SHOOT.equals(taskStates[task]) && !runCommand(gyroWait)) {
+                    break;
+                }
+                telemetry.log().add("Task " + tasks.getName(task) + " with " +
+                        (int) tasks.getRemaining(time) + "s left");
+                tasks.begin(task, time);
+                taskSuccess = false;
+                state = taskStates[task];
                 break;
             case SHOOT:
-                blocker.min(); // Min is up
-                param = new DriveToParams(this, SENSOR_TYPE.SHOOT_ENCODER);
-                param.greaterThan(SHOOT_SPIN);
-                drive = new DriveTo(new DriveToParams[]{param});
-                timer = time + SHOT_DELAY;
-                shots++;
-                state = state.next();
-                break;
-            case SHOOT_WAIT:
-                blocker.max(); // Max is down
-                if (timer < time) {
-                    if (shots >= NUM_SHOTS) {
-                        state = state.next();
-                    } else {
-                        state = state.prev();
-                    }
+                if (runCommand(shoot)) {
+                    taskSuccess = shooter.getShots() >= NUM_SHOTS;
+                    state = AUTO_STATE.PLAN;
                 }
                 break;
-            case DRIVE_TO_BALL:
-                driveForward(BALL_DISTANCE);
-                state = state.next();
-                break;
-            case TURN_IN:
-                angle = TURN_IN_ANGLE;
-                if (Field.AllianceColor.RED.equals(color)) {
-                    angle *= -1;
+            case CAP_BALL:
+                if (runCommand(capBall)) {
+                    taskSuccess = true;
+                    state = AUTO_STATE.PLAN;
                 }
-                turnAngle(angle);
-                state = state.next();
-                break;
-            case DRIVE_PAST_BALL:
-                driveForward(PAST_BALL_DISTANCE);
-                state = state.next();
                 break;
             case BLIND_TURN:
                 if (!gyro.isReady()) {
                     // Bail if we have no gyro
-                    state = AUTO_STATE.last;
+                    state = AUTO_STATE.PLAN;
                 } else {
                     // Turn away first; we might see the nearby alternate alliance target
                     angle = BLIND_TURN;
@@ -313,8 +487,18 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
                 }
                 // Reset the accumulator for use in FIND_TARGET
                 findTurnAccumulator = 0;
+                findPredicted = false;
                 break;
             case FIND_TARGET:
+                // Turn straight to a predicted target once, from the localizer pose
+                if (!findPredicted) {
+                    findPredicted = true;
+                    if (turnToPredictedTarget()) {
+                        waiting = false;
+                        state = state.next();
+                        break;
+                    }
+                }
                 if (findTurnAccumulator < FIND_TARGET_MAX) {
                     turnAngle(FIND_TARGET_INCREMENT);
                     findTurnAccumulator += FIND_TARGET_INCREMENT;
@@ -322,7 +506,7 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
                     waiting = false;
                     state = state.next();
                 } else {
-                    state = AUTO_STATE.last;
+                    state = AUTO_STATE.PLAN;
                 }
                 break;
             case FIND_TARGET_WAIT:
@@ -334,6 +518,7 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
                     // Select a target when we have a vision fix
                     target = firstTarget(color);
                     telemetry.log().add("Selected target " + config[target].name);
+                    vuforia.setMaxSimultaneous(VuforiaConfigs.ApproachTargets);
 
                     // Sync the gyro before turning
                     gyro.setHeading(vuforia.getHeading());
@@ -347,21 +532,16 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
                 if (target < 0) {
                     // Bail if we have no target
                     telemetry.log().add("No target found. Aborting...");
-                    state = AUTO_STATE.last;
+                    state = AUTO_STATE.PLAN;
                     break;
                 }
-                bearing = vuforia.bearing(destinationXY(target));
-                turnBearing(bearing);
-                telemetry.log().add("Turning to " + config[target].name + "-dest @ " + bearing + "°");
+                turnToRoute(destX[target], destY[target], config[target].name + "-dest");
                 state = state.next();
                 break;
             case DRIVE_TO_DEST:
-                if (target >= 0) {
-                    int distance = vuforia.distance(destinationXY(target));
-                    driveForward(distance);
-                    telemetry.log().add("Driving to " + config[target].name + "-dest @ " + distance + "mm");
+                if (driveRoute(destX[target], destY[target])) {
+                    state = state.next();
                 }
-                state = state.next();
                 break;
             case TURN_TO_TARGET:
                 if (Field.AllianceColor.BLUE.equals(color)) {
@@ -375,6 +555,7 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
                 waiting = false;
                 // Reset the accumulator for use in TARGET_NOT_VISIBLE
                 findTurnAccumulator = 0;
+                findPredicted = false;
                 state = state.next();
                 break;
             case WAIT_TARGET:
@@ -391,6 +572,17 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
                 }
                 break;
             case TARGET_NOT_VISIBLE:
+                // Turn straight to a predicted target first
+                if (!findPredicted) {
+                    findPredicted = true;
+                    if (turnToPredictedTarget()) {
+                        // Reset the waiting flag for WAIT_TARGET
+                        waiting = false;
+                        state = state.prev();
+                        break;
+                    }
+                }
+
                 // Turn cw by on attempt 1, ccw on attempt 2, then give up
                 if (findTurnAccumulator == 0) {
                     telemetry.log().add("Searching CW for target");
@@ -400,7 +592,7 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
                     angle = FIND_TARGET_INCREMENT * -2;
                 } else {
                     telemetry.log().add("Unable to reacquire target. Aborting...");
-                    state = AUTO_STATE.last;
+                    state = AUTO_STATE.PLAN;
                     break;
                 }
                 findTurnAccumulator = angle;
@@ -412,7 +604,7 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
             case ALIGN_AT_TARGET:
                 if (vuforia.isStale()) {
                     telemetry.log().add("Unable to align at target. Aborting...");
-                    state = AUTO_STATE.last;
+                    state = AUTO_STATE.PLAN;
                     break;
                 } else {
                     bearing = vuforia.bearing(target);
@@ -425,6 +617,8 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
                 if (vuforia.isStale()) {
                     telemetry.log().add("Unable to locate target for approach. Attempting blind bump.");
                     driveForward(BLIND_BUMP);
+                    // Reset the waiting flag for CHECK_COLOR
+                    waiting = false;
                     state = AUTO_STATE.CHECK_COLOR;
                     break;
                 }
@@ -439,52 +633,96 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
                 }
                 break;
             case ALIGN_TARGET_PLANE:
-                if (vuforia.getVisible(config[target].name)) {
-                    turnAngle(vuforia.getTargetAngle(config[target].name));
+                if (vuforia.getVisible(target)) {
+                    turnAngle(Math.round(vuforia.getTargetAnglePrecise(target)));
                     state = state.next();
                 } else {
                     telemetry.log().add("Unable to align to target plane");
-                    state = AUTO_STATE.last;
+                    state = AUTO_STATE.PLAN;
                 }
-                // TODO: Stop for debug
-                state = AUTO_STATE.last;
                 break;
             case BUMP_WALL:
                 driveForward(APPROACH_MIN / 2);
+                // Reset the waiting flag for CHECK_COLOR
+                waiting = false;
                 state = state.next();
                 break;
             case CHECK_COLOR:
-                // TODO: Check the color sensor for beacon configuration
-                beacon = Field.AllianceColor.BLUE;
-                state = state.next();
+                if (!waiting) {
+                    beaconColor.reset();
+                    waiting = true;
+                }
+                // Sample until confident, bounded by BeaconColor.MAX_SAMPLES
+                if (beaconColor.sample()) {
+                    beacon = beaconColor.getColor();
+                    telemetry.log().add("Beacon " + beacon + " (" +
+                            (int) (beaconColor.getConfidence() * 100) + "% in " +
+                            beaconColor.getSamples() + " samples)");
+                    if (beaconColor.isConfident()) {
+                        state = state.next();
+                    } else {
+                        telemetry.log().add("Unable to classify beacon. Backing away...");
+                        state = AUTO_STATE.BACK_AWAY;
+                    }
+                }
                 break;
             case PRESS_BEACON:
                 // TODO: This depends on where the color sensor is mounted
-                if (Field.AllianceColor.RED.equals(beacon)) {
-                    booperLeft.max();
-                } else {
-                    booperRight.max();
+                if (runCommand(Field.AllianceColor.RED.equals(beacon) ? pressLeft : pressRight)) {
+                    taskSuccess = true;
+                    state = AUTO_STATE.PLAN;
                 }
-                timer = time + BEACON_DELAY;
-                state = state.next();
                 break;
-            case BEACON_WAIT:
-                if (timer < time) {
-                    state = state.next();
+            case BACK_AWAY:
+                if (runCommand(backAway)) {
+                    state = AUTO_STATE.PLAN;
                 }
                 break;
-            case BACK_AWAY:
-                booperLeft.min();
-                booperRight.min();
-                driveForward(-DESTINATION_OFFSET);
+            case PARK:
+                turnToRoute(parkX, parkY, "park");
                 state = state.next();
                 break;
+            case PARK_DRIVE:
+                if (driveRoute(parkX, parkY)) {
+                    taskSuccess = routeArrived;
+                    state = AUTO_STATE.PLAN;
+                }
+                break;
             case DONE:
                 // Nothing
                 break;
         }
     }
 
+    @Override
+    public void stop() {
+        if (command != null) {
+            command.stop(true);
+            command = null;
+        }
+        shooter.stop();
+
+        // A task still running at the end of the period did not fit
+        tasks.finish(time, false);
+        if (!tasks.save(hardwareMap.appContext)) {
+            telemetry.log().add("ERROR: Unable to save task history");
+        }
+        vuforia.stop();
+        if (vuforia.getRecorder() != null) {
+            telemetry.log().add("Vuforia log written to " + vuforia.getRecorder().getFile().getName());
+        }
+        if (Instrument.isEnabled()) {
+            // Loop period for comparing vision profiles
+            LatencyHistogram period = loopProbe.getHistogram();
+            telemetry.log().add(String.format("Loop period: %d loops, mean %dµs, p50 %dµs, p99 %dµs",
+                    period.getCount(), period.getMean(), period.getPercentile(50), period.getPercentile(99)));
+            File dump = Instrument.dump();
+            if (dump != null) {
+                telemetry.log().add("Instrumentation written to " + dump.getName());
+            }
+        }
+    }
+
     @Override
     public void driveToStop(DriveToParams param) {
         switch ((SENSOR_TYPE) param.reference) {
@@ -493,9 +731,6 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
             case DRIVE_ENCODER:
                 tank.stop();
                 break;
-            case SHOOT_ENCODER:
-                shooter.setPower(0);
-                break;
         }
     }
 
@@ -520,10 +755,12 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
                 }
                 break;
             case DRIVE_ENCODER:
-                tank.setSpeed(-SPEED_DRIVE);
-                break;
-            case SHOOT_ENCODER:
-                shooter.setPower(SPEED_SHOOT);
+                // Encoder counts fall when driving forward
+                if (param.comparator.equals(DriveToComp.LESS)) {
+                    tank.setSpeed(-SPEED_DRIVE);
+                } else {
+                    tank.setSpeed(SPEED_DRIVE);
+                }
                 break;
         }
     }
@@ -538,16 +775,95 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
             case DRIVE_ENCODER:
                 value = tank.getEncoder(ENCODER_INDEX);
                 break;
-            case SHOOT_ENCODER:
-                value = shooter.getEncoder();
-                break;
         }
         return value;
     }
 
+    @Override
+    public int odometryHeading() {
+        // Raw heading so gyro.setHeading() syncs don't look like rotation
+        return gyro.getHeadingRaw();
+    }
+
+    @Override
+    public int odometryDistance() {
+        // Remember that "forward" is "negative" per the joystick conventions
+        return (int) ((float) -tank.getEncoder(ENCODER_INDEX) / ENCODER_PER_MM);
+    }
+
+    private void localize() {
+        int heading = odometryHeading();
+        int distance = odometryDistance();
+        localizer.predict(distance - lastOdometryDistance, heading - lastOdometryHeading, time - lastPredict);
+        lastOdometryHeading = heading;
+        lastOdometryDistance = distance;
+        lastPredict = time;
+
+        // Each new vision fix, trusted in proportion to its quality
+        if (vuforia.getTimestamp() != lastFix && !vuforia.isStale()) {
+            lastFix = vuforia.getTimestamp();
+            float quality = Math.max(vuforia.getQuality(), FIX_QUALITY_MIN);
+            localizer.updateFix(vuforia.getXPrecise(), vuforia.getYPrecise(), vuforia.getHeadingPrecise(),
+                    FIX_POSITION_ERR / quality, FIX_HEADING_ERR / quality);
+        }
+
+        // Each new range reading, as for vision fixes
+        if (RANGE_FUSION && range.isAvailable()) {
+            int cm = range.getRange();
+            if (cm != lastRange || time >= lastRangeTime + RANGE_PERIOD) {
+                lastRange = cm;
+                lastRangeTime = time;
+                if (cm > 0 && cm < RANGE_MAX_CM) {
+                    localizer.updateRange((cm * MM_PER_CM) + RANGE_MOUNT_OFFSET, RANGE_MOUNT, RANGE_ERR);
+                }
+            }
+        }
+    }
+
+    // Best pose: the localizer, unless it has lost confidence and a current vision fix is at hand
+    private boolean poseFromFix() {
+        return !localizer.isConfident() && !vuforia.isStale();
+    }
+
+    private double poseX() {
+        return poseFromFix() ? vuforia.getXPrecise() : localizer.getX();
+    }
+
+    private double poseY() {
+        return poseFromFix() ? vuforia.getYPrecise() : localizer.getY();
+    }
+
+    private double poseHeading() {
+        return poseFromFix() ? vuforia.getHeadingPrecise() : localizer.getHeading();
+    }
+
+    private int bearingTo(int x, int y) {
+        return (int) Math.round(Geometry.bearing(poseX(), poseY(), x, y));
+    }
+
+    private int distanceTo(int x, int y) {
+        return (int) Math.round(Geometry.distance(poseX(), poseY(), x, y));
+    }
+
+    private void schedulePolling() {
+        // The gyro feeds odometry every loop and stays active; the beacon sensor is only
+        // consumed in CHECK_COLOR
+        polling.set(gyro, PollRate.ACTIVE);
+        if (AUTO_STATE.CHECK_COLOR.equals(state)) {
+            polling.set(beaconSensor, PollRate.ACTIVE);
+        } else {
+            polling.set(beaconSensor, PollRate.IDLE);
+        }
+    }
+
     private void turnAngle(int angle) {
         tank.setTeleop(false);
         DriveToParams param = new DriveToParams(this, SENSOR_TYPE.GYRO);
+        turnParams(param, angle);
+        drive = new DriveTo(new DriveToParams[]{param});
+    }
+
+    private void turnParams(DriveToParams param, int angle) {
         param.timeout = (Math.abs(angle) * TIMEOUT_DEGREE) + TIMEOUT_DEFAULT;
 
         // Normalized heading and bearing
@@ -559,14 +875,13 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
         } else {
             param.lessThan(target + OVERRUN_GYRO);
         }
-        drive = new DriveTo(new DriveToParams[]{param});
     }
 
     private void turnBearing(int bearing) {
         // Normalized heading and turns in each direction
         int heading = gyro.getHeadingBasic();
-        int cw = (bearing - heading + FULL_CIRCLE) % FULL_CIRCLE;
-        int ccw = (heading - bearing + FULL_CIRCLE) % FULL_CIRCLE;
+        int cw = Geometry.normalize(bearing - heading);
+        int ccw = Geometry.normalize(heading - bearing);
 
         // Turn the short way
         if (Math.abs(cw) <= Math.abs(ccw)) {
@@ -579,17 +894,216 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
     private void driveForward(int distance) {
         tank.setTeleop(false);
         DriveToParams param = new DriveToParams(this, SENSOR_TYPE.DRIVE_ENCODER);
-        int ticks = (int) ((float) -distance * ENCODER_PER_MM);
-        param.lessThan(ticks + tank.getEncoder(ENCODER_INDEX) - OVERRUN_ENCODER);
+        driveParams(param, distance);
         drive = new DriveTo(new DriveToParams[]{param});
     }
 
+    private void driveParams(DriveToParams param, int distance) {
+        // Remember that "forward" is "negative" per the joystick conventions
+        int ticks = (int) ((float) -distance * ENCODER_PER_MM) + tank.getEncoder(ENCODER_INDEX);
+        if (distance >= 0) {
+            param.lessThan(ticks - OVERRUN_ENCODER);
+        } else {
+            param.greaterThan(ticks + OVERRUN_ENCODER);
+        }
+    }
+
+    // Choose a route to x,y and turn to start along it
+    private void turnToRoute(int x, int y, String name) {
+        routeName = name;
+
+        // Use the stored route if it fits, else route around the field structures,
+        // else straight there
+        if (route != null && route.matches(poseX(), poseY(), x, y, TrajectoryConfigs.RouteTolerance)) {
+            trajectory = route;
+            telemetry.log().add("Using stored route");
+        } else if (planner.plan((int) poseX(), (int) poseY(), x, y)) {
+            trajectory = generator.generate(planner);
+            telemetry.log().add("Planned " + (planner.getLength() - 1) + " legs");
+        } else {
+            trajectory = null;
+            telemetry.log().add("No path to " + name + ". Driving direct.");
+        }
+
+        int bearing;
+        if (trajectory != null) {
+            // Face the point the follower will steer toward first
+            int i = 1;
+            while (i < trajectory.getLength() - 1 &&
+                    distanceTo(trajectory.getX(i), trajectory.getY(i)) < PathFollower.DEFAULT_LOOKAHEAD) {
+                i++;
+            }
+            bearing = bearingTo(trajectory.getX(i), trajectory.getY(i));
+        } else {
+            bearing = bearingTo(x, y);
+        }
+        turnBearing(bearing);
+        telemetry.log().add("Turning to " + name + " @ " + bearing + "°");
+    }
+
+    // Follow the route from turnToRoute(), or drive straight to x,y; true once done, with
+    // routeArrived set if we got there rather than timing out
+    private boolean driveRoute(int x, int y) {
+        if (trajectory != null) {
+            if (!follower.isEnabled()) {
+                follower.setPath(trajectory);
+                follower.start();
+                timer = time + (trajectory.getDuration() / 1000.0) + FOLLOW_TIMEOUT;
+                telemetry.log().add("Following path to " + routeName);
+            }
+            follower.display(telemetry);
+            boolean arrived = follower.loop(poseX(), poseY(), poseHeading());
+            if (!arrived && timer >= time) {
+                return false;
+            }
+            if (!arrived) {
+                telemetry.log().add("Path following timed out");
+            }
+            follower.stop();
+            tank.setTeleop(true);
+            autodriveComplete = time;
+            routeArrived = arrived;
+        } else if (!routeDirect) {
+            int distance = distanceTo(x, y);
+            driveForward(distance);
+            routeDirect = true;
+            telemetry.log().add("Driving to " + routeName + " @ " + distance + "mm");
+            return false;
+        } else {
+            // The loop holds the state machine until DriveTo is done, so it is done here
+            if (driveTimedOut) {
+                telemetry.log().add("Driving to " + routeName + " timed out");
+            }
+            routeDirect = false;
+            routeArrived = !driveTimedOut;
+        }
+        trajectory = null;
+        return true;
+    }
+
+    // Stop whatever the current task is doing and let the planner choose again
+    private void abandonTask() {
+        telemetry.log().add("Task " + tasks.getName(tasks.getCurrent()) + " is out of time. Moving on...");
+        if (command != null) {
+            command.stop(true);
+            command = null;
+        }
+        drive = null;
+        follower.stop();
+        trajectory = null;
+        routeDirect = false;
+        tank.setTeleop(true);
+        tank.stop();
+        booperLeft.min();
+        booperRight.min();
+        taskSuccess = false;
+        state = AUTO_STATE.PLAN;
+    }
+
+    // Run a command across loops; true once it has completed
+    private boolean runCommand(Command c) {
+        if (command != c) {
+            command = c;
+            c.start(time);
+        }
+        if (!c.loop(time)) {
+            return false;
+        }
+        c.stop(false);
+        command = null;
+        return true;
+    }
+
+    private void buildTasks() {
+        tasks = new TaskPlanner();
+        int shootTask = tasks.add("Shoot", SHOT_POINTS * NUM_SHOTS, SHOOT_PRIOR_MS, SHOOT_PRIOR_SUCCESS);
+        int capBallTask = tasks.add("Cap Ball", CAP_BALL_POINTS, CAP_BALL_PRIOR_MS, CAP_BALL_PRIOR_SUCCESS);
+        int beaconTask = tasks.add("Beacon", BEACON_POINTS, BEACON_PRIOR_MS, BEACON_PRIOR_SUCCESS);
+        int parkTask = tasks.add("Park", PARK_POINTS, PARK_PRIOR_MS, PARK_PRIOR_SUCCESS);
+
+        // The shot and the cap ball drive are measured from the start tile, so they can only
+        // come first and second. The beacon search and parking route from wherever we are.
+        // Parking after the cap ball is pointless; it leaves us on the center base.
+        tasks.allowAfter(shootTask, TaskPlanner.START);
+        tasks.allowAfter(capBallTask, shootTask);
+        tasks.allowAfter(beaconTask, TaskPlanner.START);
+        tasks.allowAfter(beaconTask, shootTask);
+        tasks.allowAfter(beaconTask, capBallTask);
+        tasks.allowAfter(parkTask, TaskPlanner.START);
+        tasks.allowAfter(parkTask, shootTask);
+        tasks.allowAfter(parkTask, beaconTask);
+
+        taskStates = new AUTO_STATE[tasks.getCount()];
+        taskStates[shootTask] = AUTO_STATE.SHOOT;
+        taskStates[capBallTask] = AUTO_STATE.CAP_BALL;
+        taskStates[beaconTask] = AUTO_STATE.BLIND_TURN;
+        taskStates[parkTask] = AUTO_STATE.PARK;
+
+        // Park on the center vortex base, at the edge of the vortex that faces our start tile
+        // and just far enough out that the robot clears it
+        Landmark center = Field.find(Landmark.Type.CENTER_VORTEX, null);
+        Landmark tile = Field.find(Landmark.Type.START, color);
+        double toTile = Math.toRadians(Geometry.bearing(center.x, center.y, tile.x, tile.y));
+        int reach = Field.CENTER_VORTEX_RADIUS + TrajectoryConfigs.RobotRadius;
+        parkX = center.x + (int) Math.round(reach * Math.sin(toTile));
+        parkY = center.y + (int) Math.round(reach * Math.cos(toTile));
+    }
+
+    private void buildCommands() {
+        int turnIn = TURN_IN_ANGLE;
+        if (Field.AllianceColor.RED.equals(color)) {
+            turnIn *= -1;
+        }
+
+        // Drive and shoot by encoder while the gyro finishes calibrating. The first shot is a
+        // full cam cycle; the shooter cocks for the second as the first leaves.
+        gyroWait = new GyroCommand(GYRO_TIMEOUT);
+        shoot = CommandGroup.parallel(
+                gyroWait,
+                CommandGroup.sequence(
+                        new DriveCommand(SHOOT_DISTANCE),
+                        new FireCommand(shooter, NUM_SHOTS)));
+        capBall = CommandGroup.sequence(
+                new DriveCommand(BALL_DISTANCE),
+                new TurnCommand(turnIn),
+                new DriveCommand(PAST_BALL_DISTANCE));
+
+        // Retract both boopers as we back off the beacon
+        backAway = CommandGroup.parallel(
+                new DriveCommand(-VuforiaConfigs.DestinationOffset),
+                new ServoCommand(booperLeft, ServoCommand.Position.MIN),
+                new ServoCommand(booperRight, ServoCommand.Position.MIN));
+        pressLeft = CommandGroup.sequence(
+                new ServoCommand(booperLeft, ServoCommand.Position.MAX, BEACON_DELAY),
+                backAway);
+        pressRight = CommandGroup.sequence(
+                new ServoCommand(booperRight, ServoCommand.Position.MAX, BEACON_DELAY),
+                backAway);
+    }
+
+    // Turn toward the target we expect to see from our best pose, which needs no prior fix, with
+    // the frustum narrowed by the localizer's spread
+    private boolean turnToPredictedTarget() {
+        if (!gyro.isReady()) {
+            return false;
+        }
+        NavHint hint = new NavHint(new Integer[]{(int) Math.round(poseX()), (int) Math.round(poseY())},
+                (int) Math.ceil(localizer.getSpread()), (int) Math.round(poseHeading()), null);
+        if (!nav.findTrackable(hint)) {
+            return false;
+        }
+        telemetry.log().add("Expecting " + config[nav.getTrackable()].name + " after " +
+                nav.getTrackableTurn() + "° turn");
+        turnAngle(nav.getTrackableTurn());
+        return true;
+    }
+
     private int firstTarget(Field.AllianceColor color) {
         int index = -1;
         for (int i = 0; i < config.length; i++) {
             if (config[i].color.equals(color)) {
                 // TODO: An ENUM-based array would be better, but not tonight
-                if (config[i].name.equals(FIRST_TARGET_BLUE) || config[i].name.equals(FIRST_TARGET_RED)) {
+                if (config[i].name.equals(VuforiaConfigs.FirstTarget(color))) {
                     index = i;
                     break;
                 }
@@ -598,30 +1112,81 @@ public class VuforiaAuto extends OpMode implements DriveToListener {
         return index;
     }
 
-    private int closestTarget(Field.AllianceColor color) {
-        int index = -1;
-        int min = Integer.MAX_VALUE;
-        for (int i = 0; i < config.length; i++) {
-            if (config[i].color.equals(color)) {
-                int distance = vuforia.distance(config[i].adjusted[0], config[i].adjusted[1]);
-                if (distance < min) {
-                    min = distance;
-                    index = i;
-                }
-            }
+    // Encoder drive from wherever the command starts
+    private class DriveCommand extends DriveToCommand {
+        private final int distance;
+
+        DriveCommand(int distance) {
+            super(VuforiaAuto.this, SENSOR_TYPE.DRIVE_ENCODER);
+            this.distance = distance;
+        }
+
+        @Override
+        protected void setup(DriveToParams param) {
+            tank.setTeleop(false);
+            driveParams(param, distance);
+        }
+
+        @Override
+        public void stop(boolean interrupted) {
+            super.stop(interrupted);
+            tank.setTeleop(true);
+            autodriveComplete = time;
         }
-        return index;
     }
 
-    private int[] destinationXY(int index) {
-        int[] destination = new int[]{config[index].adjusted[0], config[index].adjusted[1]};
-        // TODO: This is imaginary and must be calibrated before use
-        // Pick a spot in front of the destination target to allow better alignment
-        if (config[index].color.equals(Field.AllianceColor.BLUE)) {
-            destination[0] -= DESTINATION_OFFSET;
-        } else {
-            destination[1] -= DESTINATION_OFFSET;
+    // Gyro turn relative to the heading when the command starts
+    private class TurnCommand extends DriveToCommand {
+        private final int angle;
+
+        TurnCommand(int angle) {
+            super(VuforiaAuto.this, SENSOR_TYPE.GYRO);
+            this.angle = angle;
+        }
+
+        @Override
+        protected void setup(DriveToParams param) {
+            tank.setTeleop(false);
+            turnParams(param, angle);
+        }
+
+        @Override
+        public void stop(boolean interrupted) {
+            super.stop(interrupted);
+            tank.setTeleop(true);
+            autodriveComplete = time;
+        }
+    }
+
+    // Wait for gyro calibration, giving up on the gyro at the timeout
+    private class GyroCommand implements Command {
+        private final double timeout;
+        private double end = 0;
+
+        GyroCommand(double timeout) {
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void start(double time) {
+            end = time + timeout;
+        }
+
+        @Override
+        public boolean loop(double time) {
+            return gyro.isReady() || time >= end;
+        }
+
+        @Override
+        public void stop(boolean interrupted) {
+            // Keep waiting next time if our task was cut short
+            if (interrupted) {
+                return;
+            }
+            if (!gyro.isReady()) {
+                gyro.disable();
+            }
+            gyroChecked = true;
         }
-        return destination;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package org.firstinspires.ftc.teamcode.command;
+
+/**
+ * One step of an autonomous routine
+ * <p>
+ * Commands are built once during init() and reused. The runner calls {@link #start(double)}
+ * when the step begins, {@link #loop(double)} once per OpMode loop until it returns true, and
+ * then {@link #stop(boolean)} exactly once. Implementations must not allocate after
+ * construction.
+ */
+public interface Command {
+    /**
+     * @param time OpMode time in seconds
+     */
+    void start(double time);
+
+    /**
+     * @param time OpMode time in seconds
+     * @return True when the command is complete
+     */
+    boolean loop(double time);
+
+    /**
+     * @param interrupted True if the command was cancelled before it completed
+     */
+    void stop(boolean interrupted);
+}
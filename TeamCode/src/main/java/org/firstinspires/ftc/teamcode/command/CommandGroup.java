@@ -0,0 +1,146 @@
+package org.firstinspires.ftc.teamcode.command;
+
+/**
+ * A fixed set of commands run together as one command
+ * <p>
+ * <ul>
+ * <li>SEQUENCE runs the children in order. A child that completes immediately hands off to the
+ * next in the same loop.</li>
+ * <li>PARALLEL runs every child and completes when all of them have.</li>
+ * <li>RACE runs every child and completes when any one does, cancelling the rest.</li>
+ * <li>DEADLINE runs every child and completes when the first (the deadline) does, cancelling
+ * the rest.</li>
+ * </ul>
+ * Groups nest, so a whole routine is a single tree built in init(). Each group keeps its
+ * children and their completion flags in fixed arrays and runs them in place, so executing
+ * the tree allocates nothing.
+ */
+public class CommandGroup implements Command {
+    public enum Mode { SEQUENCE, PARALLEL, RACE, DEADLINE }
+
+    private final Mode mode;
+    private final Command[] children;
+    private final boolean[] done;
+    private int current = 0;
+
+    public CommandGroup(Mode mode, Command... children) {
+        if (children.length == 0) {
+            throw new IllegalArgumentException("CommandGroup must have children");
+        }
+        this.mode = mode;
+        this.children = children;
+        this.done = new boolean[children.length];
+    }
+
+    public static CommandGroup sequence(Command... children) {
+        return new CommandGroup(Mode.SEQUENCE, children);
+    }
+
+    public static CommandGroup parallel(Command... children) {
+        return new CommandGroup(Mode.PARALLEL, children);
+    }
+
+    public static CommandGroup race(Command... children) {
+        return new CommandGroup(Mode.RACE, children);
+    }
+
+    /**
+     * @param deadline Command that decides when the group is complete
+     * @param others   Commands cancelled if they are still running at the deadline
+     */
+    public static CommandGroup deadline(Command deadline, Command... others) {
+        Command[] children = new Command[others.length + 1];
+        children[0] = deadline;
+        System.arraycopy(others, 0, children, 1, others.length);
+        return new CommandGroup(Mode.DEADLINE, children);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void start(double time) {
+        for (int i = 0; i < children.length; i++) {
+            done[i] = false;
+        }
+        current = 0;
+        if (Mode.SEQUENCE.equals(mode)) {
+            children[0].start(time);
+        } else {
+            for (Command child : children) {
+                child.start(time);
+            }
+        }
+    }
+
+    @Override
+    public boolean loop(double time) {
+        switch (mode) {
+            case SEQUENCE:
+                while (current < children.length) {
+                    if (!step(current, time)) {
+                        return false;
+                    }
+                    current++;
+                    if (current < children.length) {
+                        children[current].start(time);
+                    }
+                }
+                return true;
+            case PARALLEL:
+                boolean all = true;
+                for (int i = 0; i < children.length; i++) {
+                    if (!step(i, time)) {
+                        all = false;
+                    }
+                }
+                return all;
+            case RACE:
+                for (int i = 0; i < children.length; i++) {
+                    if (step(i, time)) {
+                        cancel();
+                        return true;
+                    }
+                }
+                return false;
+            case DEADLINE:
+                for (int i = 1; i < children.length; i++) {
+                    step(i, time);
+                }
+                if (step(0, time)) {
+                    cancel();
+                    return true;
+                }
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void stop(boolean interrupted) {
+        if (interrupted) {
+            cancel();
+        }
+    }
+
+    // Loop one child if it is still running; true if it is (now) complete
+    private boolean step(int i, double time) {
+        if (!done[i] && children[i].loop(time)) {
+            children[i].stop(false);
+            done[i] = true;
+        }
+        return done[i];
+    }
+
+    // Cancel every child that has started and not completed
+    private void cancel() {
+        int started = Mode.SEQUENCE.equals(mode) ? Math.min(current + 1, children.length) : children.length;
+        for (int i = 0; i < started; i++) {
+            if (!done[i]) {
+                children[i].stop(true);
+                done[i] = true;
+            }
+        }
+    }
+}
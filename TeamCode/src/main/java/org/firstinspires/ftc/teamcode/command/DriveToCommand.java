@@ -0,0 +1,46 @@
+package org.firstinspires.ftc.teamcode.command;
+
+import org.firstinspires.ftc.teamcode.driveto.DriveTo;
+import org.firstinspires.ftc.teamcode.driveto.DriveToListener;
+import org.firstinspires.ftc.teamcode.driveto.DriveToParams;
+
+/**
+ * Run a single-parameter {@link DriveTo} as a command
+ * <p>
+ * The parameter and DriveTo are allocated once; {@link #setup(DriveToParams)} sets the limits
+ * each time the command starts, usually relative to the current sensor reading.
+ */
+public abstract class DriveToCommand implements Command {
+    private final DriveToParams param;
+    private final DriveTo drive;
+
+    protected DriveToCommand(DriveToListener listener, Object reference) {
+        param = new DriveToParams(listener, reference);
+        drive = new DriveTo(new DriveToParams[]{param});
+    }
+
+    /**
+     * Set the comparator, limits and timeout for this run
+     */
+    protected abstract void setup(DriveToParams param);
+
+    @Override
+    public void start(double time) {
+        setup(param);
+        drive.reset();
+    }
+
+    @Override
+    public boolean loop(double time) {
+        drive.drive();
+        return drive.isDone();
+    }
+
+    @Override
+    public void stop(boolean interrupted) {
+        // DriveTo stops its own output when it completes
+        if (interrupted) {
+            param.parent.driveToStop(param);
+        }
+    }
+}
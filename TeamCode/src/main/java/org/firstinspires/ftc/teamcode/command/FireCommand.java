@@ -0,0 +1,36 @@
+package org.firstinspires.ftc.teamcode.command;
+
+import org.firstinspires.ftc.teamcode.actuators.Shooter;
+
+/**
+ * Fire shots and complete when the last one has left, or the shooter jams
+ * <p>
+ * The owner must keep calling {@link Shooter#loop(double)}; the shooter reloads after the
+ * command completes.
+ */
+public class FireCommand implements Command {
+    private final Shooter shooter;
+    private final int count;
+
+    public FireCommand(Shooter shooter, int count) {
+        this.shooter = shooter;
+        this.count = count;
+    }
+
+    @Override
+    public void start(double time) {
+        shooter.fire(count);
+    }
+
+    @Override
+    public boolean loop(double time) {
+        return shooter.getPending() == 0 || shooter.isJammed() || !shooter.isAvailable();
+    }
+
+    @Override
+    public void stop(boolean interrupted) {
+        if (interrupted) {
+            shooter.cancel();
+        }
+    }
+}
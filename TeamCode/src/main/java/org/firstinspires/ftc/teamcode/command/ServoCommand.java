@@ -0,0 +1,51 @@
+package org.firstinspires.ftc.teamcode.command;
+
+import org.firstinspires.ftc.teamcode.actuators.ServoFTC;
+
+/**
+ * Move a servo to one end of its range and allow it time to get there
+ * <p>
+ * Servos report no position, so completion is a fixed settle time.
+ */
+public class ServoCommand implements Command {
+    public static final float DEFAULT_SETTLE = 0.25f;
+
+    public enum Position { MIN, MAX }
+
+    private final ServoFTC servo;
+    private final Position position;
+    private final double settle;
+    private double end = 0;
+
+    public ServoCommand(ServoFTC servo, Position position) {
+        this(servo, position, DEFAULT_SETTLE);
+    }
+
+    /**
+     * @param settle Seconds for the servo to travel
+     */
+    public ServoCommand(ServoFTC servo, Position position, double settle) {
+        this.servo = servo;
+        this.position = position;
+        this.settle = settle;
+    }
+
+    @Override
+    public void start(double time) {
+        if (Position.MAX.equals(position)) {
+            servo.max();
+        } else {
+            servo.min();
+        }
+        end = time + settle;
+    }
+
+    @Override
+    public boolean loop(double time) {
+        return time >= end;
+    }
+
+    @Override
+    public void stop(boolean interrupted) {
+    }
+}
@@ -0,0 +1,27 @@
+package org.firstinspires.ftc.teamcode.command;
+
+public class WaitCommand implements Command {
+    private final double delay;
+    private double end = 0;
+
+    /**
+     * @param delay Seconds to wait
+     */
+    public WaitCommand(double delay) {
+        this.delay = delay;
+    }
+
+    @Override
+    public void start(double time) {
+        end = time + delay;
+    }
+
+    @Override
+    public boolean loop(double time) {
+        return time >= end;
+    }
+
+    @Override
+    public void stop(boolean interrupted) {
+    }
+}
@@ -0,0 +1,91 @@
+package org.firstinspires.ftc.teamcode.config;
+
+import org.firstinspires.ftc.teamcode.field.Field;
+import org.firstinspires.ftc.teamcode.navigation.GridPlanner;
+import org.firstinspires.ftc.teamcode.navigation.Trajectory;
+import org.firstinspires.ftc.teamcode.navigation.TrajectoryGenerator;
+import org.firstinspires.ftc.teamcode.vuforia.VuforiaTarget;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Autonomous routes, precomputed into assets so autonomous start has no planning cost
+ * <p>
+ * Regenerate the assets whenever a route, the field model or the drive limits change by running
+ * {@link #main(String[])} on a workstation from the project root, with the RobotCore classes on
+ * the classpath. The output lands next to the Vuforia dataset in
+ * FtcRobotController/src/main/assets and is committed with the code.
+ */
+public class TrajectoryConfigs {
+    public static final String AssetDir = "FtcRobotController/src/main/assets";
+    public static final int PlannerCell = 100;
+    // Half-diagonal of an 18" square robot
+    public static final int RobotRadius = (int) (9 * Math.sqrt(2) * Field.MM_PER_INCH);
+    // Follow the stored route if we are at least this close to both its ends
+    public static final int RouteTolerance = 300;
+
+    static public String AssetName(Field.AllianceColor color) {
+        return VuforiaConfigs.AssetName + "-" + color + ".trj";
+    }
+
+    static public GridPlanner Planner() {
+        return new GridPlanner(PlannerCell, RobotRadius);
+    }
+
+    static public TrajectoryGenerator Generator() {
+        return new TrajectoryGenerator();
+    }
+
+    /**
+     * @return Where we expect the first vision fix, before turning toward the first beacon
+     */
+    static public int[] SearchPose(Field.AllianceColor color) {
+        // TODO: This is imaginary and must be measured from real runs
+        // Red mirrors blue across the field diagonal
+        int[] blue = new int[]{300, -900};
+        if (Field.AllianceColor.BLUE.equals(color)) {
+            return blue;
+        }
+        return new int[]{blue[1], blue[0]};
+    }
+
+    /**
+     * @return The route from the search pose to the first beacon, or null if none exists
+     */
+    static public Trajectory Route(GridPlanner planner, TrajectoryGenerator generator, Field.AllianceColor color) {
+        int[] start = SearchPose(color);
+        int[] dest = null;
+        for (VuforiaTarget target : VuforiaConfigs.Field()) {
+            if (target.name.equals(VuforiaConfigs.FirstTarget(color))) {
+                dest = VuforiaConfigs.Destination(target);
+            }
+        }
+        if (dest == null || !planner.plan(start[0], start[1], dest[0], dest[1])) {
+            return null;
+        }
+        return generator.generate(planner);
+    }
+
+    /**
+     * Write the route asset for each alliance
+     *
+     * @param args Optional output directory, default {@link #AssetDir}
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : AssetDir);
+        GridPlanner planner = Planner();
+        TrajectoryGenerator generator = Generator();
+        for (Field.AllianceColor color : Field.AllianceColor.values()) {
+            Trajectory route = Route(planner, generator, color);
+            if (route == null) {
+                throw new IOException("No route for " + color);
+            }
+            File file = new File(dir, AssetName(color));
+            route.write(new FileOutputStream(file));
+            System.out.println(file + ": " + route.getLength() + " samples, " +
+                    route.getDuration() + " ms");
+        }
+    }
+}
@@ -2,12 +2,45 @@ package org.firstinspires.ftc.teamcode.config;
 
 import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
 import org.firstinspires.ftc.teamcode.field.Field;
+import org.firstinspires.ftc.teamcode.field.Landmark;
+import org.firstinspires.ftc.teamcode.vuforia.VisionProfile;
 import org.firstinspires.ftc.teamcode.vuforia.VuforiaTarget;
 
 public class VuforiaConfigs {
     public static final String AssetName = "FTC_2016-17";
     public static final int TargetCount = 4;
 
+    // Vision CPU budget for autonomous
+    public static final int MaxFps = 30;
+    // One target is enough for a fix while searching; both on our wall when approaching
+    public static final int SearchTargets = 1;
+    public static final int ApproachTargets = 2;
+
+    // First beacon for each alliance, and how far in front of a target to line up on it
+    public static final String FirstTargetBlue = "LEGO";
+    public static final String FirstTargetRed = "Tools";
+    public static final int DestinationOffset = (int) (12 * Field.MM_PER_INCH);
+
+    static public VisionProfile Profile() {
+        return new VisionProfile(true, MaxFps, SearchTargets);
+    }
+
+    static public String FirstTarget(Field.AllianceColor color) {
+        return Field.AllianceColor.BLUE.equals(color) ? FirstTargetBlue : FirstTargetRed;
+    }
+
+    static public int[] Destination(VuforiaTarget target) {
+        int[] destination = new int[]{target.adjusted[0], target.adjusted[1]};
+        // TODO: This is imaginary and must be calibrated before use
+        // Pick a spot in front of the destination target to allow better alignment
+        if (target.color.equals(Field.AllianceColor.BLUE)) {
+            destination[0] -= DestinationOffset;
+        } else {
+            destination[1] -= DestinationOffset;
+        }
+        return destination;
+    }
+
     static public VuforiaTarget Bot() {
         // TODO: This location and rotation is imaginary, but should at least be close.
         return new VuforiaTarget(
@@ -19,34 +52,24 @@ public class VuforiaConfigs {
     }
 
     static public VuforiaTarget[] Field() {
-        // TODO: These locations and rotations are imaginary.
+        // TODO: These rotations are imaginary, as are the landmark locations in Field.
         // We need to find the real ones for valid x/y navigation.
         float[] ROTATION_RED = {90, 0, 0};
         float[] ROTATION_BLUE = {90, 270, 0};
         float[] ADJUST_RED = {0, -300, 0};
         float[] ADJUST_BLUE = {-300, 0, 0};
 
-        int X_BLUE = Field.FIELD_WIDTH / 2;
-        int Y_RED = Field.FIELD_WIDTH / 2;
-        int OFFSET_NEAR = (int) (12 * Field.MM_PER_INCH);
-        int OFFSET_FAR = (int) (36 * Field.MM_PER_INCH);
-
-        return new VuforiaTarget[]{new VuforiaTarget(
-                "Wheels", Field.AllianceColor.BLUE,
-                new float[]{X_BLUE, -OFFSET_NEAR, 0},
-                ADJUST_BLUE, ROTATION_BLUE
-        ), new VuforiaTarget(
-                "Tools", Field.AllianceColor.RED,
-                new float[]{OFFSET_FAR, Y_RED, 0},
-                ADJUST_RED, ROTATION_RED
-        ), new VuforiaTarget(
-                "LEGO", Field.AllianceColor.BLUE,
-                new float[]{X_BLUE, OFFSET_FAR, 0},
-                ADJUST_BLUE, ROTATION_BLUE
-        ), new VuforiaTarget(
-                "Gears", Field.AllianceColor.RED,
-                new float[]{-OFFSET_NEAR, Y_RED, 0},
-                ADJUST_RED, ROTATION_RED
-        )};
+        // Dataset order
+        return new VuforiaTarget[]{
+                Target("Wheels", ADJUST_BLUE, ROTATION_BLUE),
+                Target("Tools", ADJUST_RED, ROTATION_RED),
+                Target("LEGO", ADJUST_BLUE, ROTATION_BLUE),
+                Target("Gears", ADJUST_RED, ROTATION_RED)
+        };
+    }
+
+    static private VuforiaTarget Target(String name, float[] adjust, float[] rotation) {
+        Landmark l = Field.find(name);
+        return new VuforiaTarget(name, l.color, new float[]{l.x, l.y, 0}, adjust, rotation);
     }
 }
@@ -20,6 +20,14 @@ public class DriveTo {
         this(params, false);
     }
 
+    /**
+     * Clear the done and started state so the same params can be driven again
+     */
+    public void reset() {
+        done = false;
+        started = 0;
+    }
+
     public boolean isDone() {
         return done;
     }
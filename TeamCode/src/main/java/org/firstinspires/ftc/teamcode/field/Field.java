@@ -4,5 +4,179 @@ public class Field {
     public static final float MM_PER_INCH = 25.4f;
     public static final int FIELD_WIDTH = (int) ((12 * 12 - 2) * MM_PER_INCH);
 
+    // TODO: Approximate footprints; measure before driving close to them
+    // Center vortex base, and the legs of the corner vortex and corner ramp triangles
+    public static final int CENTER_VORTEX_RADIUS = (int) (18 * MM_PER_INCH);
+    public static final int CORNER_SIZE = (int) (36 * MM_PER_INCH);
+
+    // Beacon/target offsets along their wall from the field center
+    public static final int BEACON_NEAR = (int) (12 * MM_PER_INCH);
+    public static final int BEACON_FAR = (int) (36 * MM_PER_INCH);
+
     public enum AllianceColor { RED, BLUE }
+
+    private static final int HALF = FIELD_WIDTH / 2;
+    // Centroid of a corner triangle, measured from the corner
+    private static final int CORNER_CENTROID = HALF - (CORNER_SIZE / 3);
+    private static final int START_OFFSET = (int) (9 * MM_PER_INCH);
+
+    /*
+     * TODO: These locations and rotations are imaginary.
+     * We need to find the real ones for valid x/y navigation.
+     * Blue beacons are on the +X wall and red on the +Y wall; red mirrors blue across the
+     * field diagonal.
+     */
+    private static final Landmark[] LANDMARKS = new Landmark[]{
+            new Landmark("Wheels", Landmark.Type.TARGET, AllianceColor.BLUE, HALF, -BEACON_NEAR, 270),
+            new Landmark("Tools", Landmark.Type.TARGET, AllianceColor.RED, BEACON_FAR, HALF, 180),
+            new Landmark("LEGO", Landmark.Type.TARGET, AllianceColor.BLUE, HALF, BEACON_FAR, 270),
+            new Landmark("Gears", Landmark.Type.TARGET, AllianceColor.RED, -BEACON_NEAR, HALF, 180),
+            new Landmark("Wheels Beacon", Landmark.Type.BEACON, AllianceColor.BLUE, HALF, -BEACON_NEAR, 270),
+            new Landmark("Tools Beacon", Landmark.Type.BEACON, AllianceColor.RED, BEACON_FAR, HALF, 180),
+            new Landmark("LEGO Beacon", Landmark.Type.BEACON, AllianceColor.BLUE, HALF, BEACON_FAR, 270),
+            new Landmark("Gears Beacon", Landmark.Type.BEACON, AllianceColor.RED, -BEACON_NEAR, HALF, 180),
+            new Landmark("Center Vortex", Landmark.Type.CENTER_VORTEX, null, 0, 0, Landmark.NO_FACING),
+            new Landmark("Blue Corner Vortex", Landmark.Type.CORNER_VORTEX, AllianceColor.BLUE,
+                    CORNER_CENTROID, -CORNER_CENTROID, Landmark.NO_FACING),
+            new Landmark("Red Corner Vortex", Landmark.Type.CORNER_VORTEX, AllianceColor.RED,
+                    -CORNER_CENTROID, CORNER_CENTROID, Landmark.NO_FACING),
+            new Landmark("Blue Ramp", Landmark.Type.RAMP, AllianceColor.BLUE,
+                    -CORNER_CENTROID, -CORNER_CENTROID, 45),
+            new Landmark("Red Ramp", Landmark.Type.RAMP, AllianceColor.RED,
+                    CORNER_CENTROID, CORNER_CENTROID, 225),
+            new Landmark("Blue Start", Landmark.Type.START, AllianceColor.BLUE,
+                    BEACON_NEAR, -HALF + START_OFFSET, 0),
+            new Landmark("Red Start", Landmark.Type.START, AllianceColor.RED,
+                    -HALF + START_OFFSET, BEACON_NEAR, 90),
+    };
+
+    /**
+     * @return Every landmark on the field. Do not modify.
+     */
+    public static Landmark[] landmarks() {
+        return LANDMARKS;
+    }
+
+    /**
+     * @return The landmark with this name, or null if there is none
+     */
+    public static Landmark find(String name) {
+        for (Landmark l : LANDMARKS) {
+            if (l.name.equals(name)) {
+                return l;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The landmark of this type for the alliance, or null if there is none
+     */
+    public static Landmark find(Landmark.Type type, AllianceColor color) {
+        for (Landmark l : LANDMARKS) {
+            if (l.type == type && l.color == color) {
+                return l;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param x X component of a location relative to the field center
+     * @param y Y component of a location relative to the field center
+     * @return True if the location is outside the walls or inside a fixed field structure
+     */
+    public static boolean isObstacle(double x, double y) {
+        double half = FIELD_WIDTH / 2.0;
+        double ax = Math.abs(x);
+        double ay = Math.abs(y);
+        if (ax > half || ay > half) {
+            return true;
+        }
+        if (Math.hypot(x, y) < CENTER_VORTEX_RADIUS) {
+            return true;
+        }
+        // All four corners hold a vortex or a ramp
+        return ((half - ax) + (half - ay)) < CORNER_SIZE;
+    }
+
+    /**
+     * Is the landmark inside a camera cone, and (if it has a face) is the face toward us?
+     *
+     * @param heading  Field heading of the cone's axis (0° north, CW positive)
+     * @param fov      Full width of the cone in degrees
+     * @param minRange Closest usable range in mm
+     * @param maxRange Farthest usable range in mm
+     * @param maxView  Largest angle between the landmark's facing and our line of sight
+     */
+    public static boolean inCone(Landmark l, double x, double y, double heading, double fov,
+                                 int minRange, int maxRange, int maxView) {
+        double dx = l.x - x;
+        double dy = l.y - y;
+        double range = Math.hypot(dx, dy);
+        if (range < minRange || range > maxRange) {
+            return false;
+        }
+        double bearing = Geometry.cardinal(dx, dy);
+        if (Math.abs(Geometry.angleDiff(bearing, heading)) > fov / 2) {
+            return false;
+        }
+        // Faces point back along our line of sight when seen head-on
+        return l.facing == Landmark.NO_FACING ||
+                Math.abs(Geometry.angleDiff(l.facing, bearing + (Geometry.FULL_CIRCLE / 2))) <= maxView;
+    }
+
+    /**
+     * Turn that brings the landmark inside a camera cone narrowed by our pose uncertainty
+     *
+     * @param heading     Field heading of the cone's axis (0° north, CW positive)
+     * @param fov         Full width of the cone in degrees
+     * @param headingErr  Heading uncertainty in degrees
+     * @param positionErr Position uncertainty in mm
+     * @return Degrees to turn (CW positive), or 0 if the landmark is already inside
+     */
+    public static double turnIntoCone(Landmark l, double x, double y, double heading, double fov,
+                                      double headingErr, double positionErr) {
+        double range = Geometry.distance(x, y, l.x, l.y);
+        double margin = headingErr + Math.toDegrees(Math.atan2(positionErr, range));
+        double half = Math.max(0, (fov / 2.0) - margin);
+        double diff = Geometry.angleDiff(Geometry.bearing(x, y, l.x, l.y), heading);
+        if (diff > half) {
+            return diff - half;
+        } else if (diff < -half) {
+            return diff + half;
+        }
+        return 0;
+    }
+
+    /**
+     * Of the landmarks inside the camera cone once we make {@link #turnIntoCone} toward each,
+     * the one needing the smallest turn, then the nearest
+     *
+     * @param mask        Only landmarks with a true entry are considered, or null for all
+     * @param rangeWeight Degrees of turn traded for each millimeter closer
+     * @return Index into landmarks, or -1 if none qualify
+     */
+    public static int bestInCone(Landmark[] landmarks, boolean[] mask, double x, double y,
+                                 double heading, double fov, double headingErr, double positionErr,
+                                 int minRange, int maxRange, int maxView, double rangeWeight) {
+        int index = -1;
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < landmarks.length; i++) {
+            Landmark l = landmarks[i];
+            if (l == null || (mask != null && !mask[i])) {
+                continue;
+            }
+            double turn = turnIntoCone(l, x, y, heading, fov, headingErr, positionErr);
+            if (!inCone(l, x, y, heading + turn, fov, minRange, maxRange, maxView)) {
+                continue;
+            }
+            double score = Math.abs(turn) + (Geometry.distance(x, y, l.x, l.y) * rangeWeight);
+            if (score < best) {
+                best = score;
+                index = i;
+            }
+        }
+        return index;
+    }
 }
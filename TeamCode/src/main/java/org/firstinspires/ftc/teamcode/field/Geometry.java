@@ -0,0 +1,64 @@
+package org.firstinspires.ftc.teamcode.field;
+
+/**
+ * Allocation-free field geometry
+ * <p>
+ * Locations are millimeters relative to the field center; headings and bearings are field
+ * degrees (0° north/+Y, CW positive).
+ */
+public class Geometry {
+    public static final int FULL_CIRCLE = 360;
+
+    /**
+     * @return Field heading of the vector dx,dy, [0, 360)
+     */
+    public static double cardinal(double dx, double dy) {
+        return normalize(Math.toDegrees(Math.atan2(dx, dy)));
+    }
+
+    /**
+     * @return Bearing from x1,y1 to x2,y2, [0, 360)
+     */
+    public static double bearing(double x1, double y1, double x2, double y2) {
+        return cardinal(x2 - x1, y2 - y1);
+    }
+
+    /**
+     * @return Distance from x1,y1 to x2,y2 in mm
+     */
+    public static double distance(double x1, double y1, double x2, double y2) {
+        return Math.hypot(x2 - x1, y2 - y1);
+    }
+
+    /**
+     * @return Signed shortest rotation from b to a, in degrees [-180, 180)
+     */
+    public static double angleDiff(double a, double b) {
+        double diff = (a - b) % FULL_CIRCLE;
+        if (diff >= FULL_CIRCLE / 2) {
+            diff -= FULL_CIRCLE;
+        } else if (diff < -FULL_CIRCLE / 2) {
+            diff += FULL_CIRCLE;
+        }
+        return diff;
+    }
+
+    /**
+     * @return The heading in [0, 360)
+     */
+    public static double normalize(double heading) {
+        double h = heading % FULL_CIRCLE;
+        if (h < 0) {
+            h += FULL_CIRCLE;
+        }
+        // Tiny negative values round up to a full circle
+        return h >= FULL_CIRCLE ? 0 : h;
+    }
+
+    /**
+     * @return The heading in [0, 360)
+     */
+    public static int normalize(int heading) {
+        return ((heading % FULL_CIRCLE) + FULL_CIRCLE) % FULL_CIRCLE;
+    }
+}
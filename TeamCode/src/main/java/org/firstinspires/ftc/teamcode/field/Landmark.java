@@ -0,0 +1,31 @@
+package org.firstinspires.ftc.teamcode.field;
+
+public class Landmark {
+    // Facing for landmarks that look the same from every direction
+    public static final int NO_FACING = -1;
+
+    public enum Type { TARGET, BEACON, CENTER_VORTEX, CORNER_VORTEX, RAMP, START }
+
+    public final String name;
+    public final Type type;
+    public final Field.AllianceColor color;
+    public final int x;
+    public final int y;
+    public final int facing;
+
+    /**
+     * @param color  Owning alliance, or null if shared
+     * @param x      X component of the location relative to the field center
+     * @param y      Y component of the location relative to the field center
+     * @param facing Field heading (0° north, CW positive) the landmark's face points, or
+     *               {@link #NO_FACING}
+     */
+    public Landmark(String name, Type type, Field.AllianceColor color, int x, int y, int facing) {
+        this.name = name;
+        this.type = type;
+        this.color = color;
+        this.x = x;
+        this.y = y;
+        this.facing = facing;
+    }
+}
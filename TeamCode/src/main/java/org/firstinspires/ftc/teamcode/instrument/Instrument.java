@@ -0,0 +1,110 @@
+package org.firstinspires.ftc.teamcode.instrument;
+
+import android.os.Environment;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+
+/**
+ * Opt-in hardware latency instrumentation
+ * <p>
+ * Device wrappers register a {@link Probe} per device and operation at construction time and
+ * bracket each hardware call with {@link #start()} and {@link Probe#stop(long)}, or count it
+ * with {@link Probe#avoided()} when a cached value makes it unnecessary. While disabled
+ * start() returns 0 and nothing is recorded.
+ */
+public class Instrument {
+    private static final String DUMP_DIR = "FIRST";
+    private static final String DUMP_PREFIX = "instrument-";
+    private static final String DUMP_SUFFIX = ".txt";
+
+    private static boolean enabled = false;
+    private static final LinkedHashMap<String, Probe> probes = new LinkedHashMap<>();
+
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The existing probe for this device and operation, or a new one
+     */
+    public static synchronized Probe probe(String device, String operation) {
+        String key = device + "." + operation;
+        Probe probe = probes.get(key);
+        if (probe == null) {
+            probe = new Probe(device, operation);
+            probes.put(key, probe);
+        }
+        return probe;
+    }
+
+    public static long start() {
+        if (!enabled) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    public static synchronized void reset() {
+        for (Probe probe : probes.values()) {
+            probe.reset();
+        }
+    }
+
+    public static synchronized void display(Telemetry telemetry) {
+        if (!enabled) {
+            return;
+        }
+        for (Probe probe : probes.values()) {
+            LatencyHistogram h = probe.getHistogram();
+            if (h.getCount() == 0 && probe.getAvoided() == 0) {
+                continue;
+            }
+            telemetry.addData(probe.getName(), "%d× %dµs p99 %dµs max %dµs, %d avoided",
+                    h.getCount(), h.getMean(), h.getPercentile(99), h.getMax(), probe.getAvoided());
+        }
+    }
+
+    /**
+     * Write all probe statistics to the FIRST directory on the phone's storage
+     *
+     * @return The file written, or null on failure
+     */
+    public static synchronized File dump() {
+        if (!enabled) {
+            return null;
+        }
+        File dir = new File(Environment.getExternalStorageDirectory(), DUMP_DIR);
+        File file = new File(dir, DUMP_PREFIX + System.currentTimeMillis() + DUMP_SUFFIX);
+        PrintWriter out = null;
+        try {
+            out = new PrintWriter(new FileWriter(file));
+            out.println("probe,count,mean_us,p50_us,p90_us,p99_us,max_us,avoided");
+            for (Probe probe : probes.values()) {
+                LatencyHistogram h = probe.getHistogram();
+                out.println(probe.getName() + "," + h.getCount() + "," + h.getMean() + "," +
+                        h.getPercentile(50) + "," + h.getPercentile(90) + "," +
+                        h.getPercentile(99) + "," + h.getMax() + "," + probe.getAvoided());
+            }
+        } catch (IOException e) {
+            RobotLog.e("Unable to write instrumentation dump: " + e.getMessage());
+            return null;
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+        return file;
+    }
+}
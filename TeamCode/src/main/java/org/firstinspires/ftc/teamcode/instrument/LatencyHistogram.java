@@ -0,0 +1,113 @@
+package org.firstinspires.ftc.teamcode.instrument;
+
+/**
+ * Fixed-memory log-linear histogram in the style of HdrHistogram
+ * <p>
+ * Values are recorded in microseconds. Values below 16 µs have exact buckets; larger values use
+ * 8 sub-buckets per power of two (≤12.5% error) up to about 1 second, above which everything
+ * lands in a single overflow bucket.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR = 16;
+    private static final int LINEAR_BITS = 4;
+    private static final int SUB_BUCKETS = 8;
+    private static final int MAX_EXPONENT = 20;
+    private static final int NUM_BUCKETS = LINEAR + ((MAX_EXPONENT - LINEAR_BITS + 1) * SUB_BUCKETS) + 1;
+    private static final int OVERFLOW = NUM_BUCKETS - 1;
+
+    private final int[] counts = new int[NUM_BUCKETS];
+    private long count = 0;
+    private long total = 0;
+    private long max = 0;
+
+    public void record(long nanos) {
+        long micros = nanos / 1000;
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts[index(micros)]++;
+        count++;
+        total += micros;
+        if (micros > max) {
+            max = micros;
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Maximum recorded value in microseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return Mean recorded value in microseconds
+     */
+    public long getMean() {
+        if (count == 0) {
+            return 0;
+        }
+        return total / count;
+    }
+
+    /**
+     * @param percentile 0.0 - 100.0
+     * @return Upper bound of the bucket containing the requested percentile, in microseconds
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil((percentile / 100.0) * count);
+        if (threshold < 1) {
+            threshold = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= threshold) {
+                return Math.min(upper(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long micros) {
+        if (micros < LINEAR) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return OVERFLOW;
+        }
+        int shift = exponent - 3;
+        int sub = (int) (micros >> shift) - SUB_BUCKETS;
+        return LINEAR + ((exponent - LINEAR_BITS) * SUB_BUCKETS) + sub;
+    }
+
+    private static long upper(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        if (index >= OVERFLOW) {
+            return Long.MAX_VALUE;
+        }
+        int exponent = ((index - LINEAR) / SUB_BUCKETS) + LINEAR_BITS;
+        int sub = (index - LINEAR) % SUB_BUCKETS;
+        int shift = exponent - 3;
+        return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,50 @@
+package org.firstinspires.ftc.teamcode.instrument;
+
+public class Probe {
+    public final String device;
+    public final String operation;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private int avoided = 0;
+
+    Probe(String device, String operation) {
+        this.device = device;
+        this.operation = operation;
+    }
+
+    /**
+     * @param start Value returned by {@link Instrument#start()} before the hardware call
+     */
+    public void stop(long start) {
+        if (start == 0) {
+            return;
+        }
+        histogram.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Count a hardware call skipped because it would not have changed the device
+     */
+    public void avoided() {
+        if (!Instrument.isEnabled()) {
+            return;
+        }
+        avoided++;
+    }
+
+    public int getAvoided() {
+        return avoided;
+    }
+
+    void reset() {
+        histogram.reset();
+        avoided = 0;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public String getName() {
+        return device + "." + operation;
+    }
+}
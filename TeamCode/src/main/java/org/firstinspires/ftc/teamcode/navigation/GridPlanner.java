@@ -0,0 +1,348 @@
+package org.firstinspires.ftc.teamcode.navigation;
+
+import org.firstinspires.ftc.teamcode.field.Field;
+
+/**
+ * A* path planner over an occupancy grid of the field
+ * <p>
+ * The grid is built once from {@link Field#isObstacle(double, double)}, inflated by the robot's
+ * radius so the robot can be treated as a point, and every search reuses the same primitive
+ * work arrays. Paths are simplified to the fewest straight legs with a clear line of sight.
+ * Start and goal points inside the inflated obstacles (e.g. against a wall) are snapped to the
+ * nearest free cell. The start still appears exactly as the first waypoint, since that is
+ * where the robot is, but a blocked goal is replaced by the center of its free cell so the
+ * path never ends inside an obstacle.
+ */
+public class GridPlanner {
+    private static final float SQRT2 = (float) Math.sqrt(2);
+    private static final int[] STEP_X = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] STEP_Y = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final float[] STEP_COST = {1, 1, 1, 1, SQRT2, SQRT2, SQRT2, SQRT2};
+    // Line-of-sight samples per cell width
+    private static final int SIGHT_SAMPLES = 10;
+
+    private final int cellSize;
+    private final int size;
+    private final double origin;
+    private final boolean[] blocked;
+
+    // Search state, valid where visited[c] == generation
+    private int generation = 0;
+    private final int[] visited;
+    private final boolean[] closed;
+    private final float[] cost;
+    private final int[] parent;
+
+    // Binary min-heap of cells keyed by estimated total cost; stale entries are skipped
+    private final int[] heap;
+    private final float[] heapKey;
+    private int heapSize = 0;
+
+    // Result
+    private final int[] cells;
+    private final int[] pathX;
+    private final int[] pathY;
+    private int pathLength = 0;
+
+    /**
+     * @param cellSize Grid resolution in millimeters
+     * @param radius   Robot radius in millimeters; obstacles are inflated by this much
+     */
+    public GridPlanner(int cellSize, int radius) {
+        this.cellSize = cellSize;
+        this.size = (int) Math.ceil((double) Field.FIELD_WIDTH / cellSize);
+        this.origin = -(size * cellSize) / 2.0;
+
+        int n = size * size;
+        blocked = new boolean[n];
+        visited = new int[n];
+        closed = new boolean[n];
+        cost = new float[n];
+        parent = new int[n];
+        heap = new int[n * STEP_X.length];
+        heapKey = new float[heap.length];
+        cells = new int[n];
+        pathX = new int[n];
+        pathY = new int[n];
+
+        inflate(radius);
+    }
+
+    /**
+     * Find the shortest drivable path
+     *
+     * @return True if a path was found; see {@link #getLength()} and {@link #getX(int)}
+     */
+    public boolean plan(int startX, int startY, int goalX, int goalY) {
+        pathLength = 0;
+        int start = nearestFree(cell(startX, startY));
+        int requested = cell(goalX, goalY);
+        int goal = nearestFree(requested);
+        if (start < 0 || goal < 0) {
+            return false;
+        }
+        if (!search(start, goal)) {
+            return false;
+        }
+
+        // Walk back from the goal
+        int num = 0;
+        for (int c = goal; c != start; c = parent[c]) {
+            cells[num++] = c;
+        }
+        cells[num++] = start;
+
+        // Keep only the corners we cannot see past, start first. Sight lines run between the
+        // waypoints themselves, so the exact start and goal are checked too.
+        int endX = (goal == requested) ? goalX : centerX(goal);
+        int endY = (goal == requested) ? goalY : centerY(goal);
+        add(startX, startY);
+        int anchor = num - 1;
+        while (anchor > 0) {
+            int next = anchor - 1;
+            while (next > 0) {
+                int x = (next == 1) ? endX : centerX(cells[next - 1]);
+                int y = (next == 1) ? endY : centerY(cells[next - 1]);
+                if (!clear(pathX[pathLength - 1], pathY[pathLength - 1], x, y)) {
+                    break;
+                }
+                next--;
+            }
+            if (next > 0) {
+                add(centerX(cells[next]), centerY(cells[next]));
+            }
+            anchor = next;
+        }
+        add(endX, endY);
+        return true;
+    }
+
+    /**
+     * @return Number of waypoints in the last path, including start and goal; 0 if none
+     */
+    public int getLength() {
+        return pathLength;
+    }
+
+    public int getX(int index) {
+        return pathX[index];
+    }
+
+    public int getY(int index) {
+        return pathY[index];
+    }
+
+    /**
+     * @return True if the inflated grid cell containing x,y is blocked
+     */
+    public boolean isBlocked(int x, int y) {
+        int c = cell(x, y);
+        return c < 0 || blocked[c];
+    }
+
+    /**
+     * Helpers
+     */
+
+    private boolean search(int start, int goal) {
+        generation++;
+        heapSize = 0;
+        visit(start, 0, start);
+        push(start, heuristic(start, goal));
+
+        while (heapSize > 0) {
+            int c = pop();
+            if (closed[c]) {
+                continue;
+            }
+            closed[c] = true;
+            if (c == goal) {
+                return true;
+            }
+
+            int cx = c % size;
+            int cy = c / size;
+            for (int i = 0; i < STEP_X.length; i++) {
+                int nx = cx + STEP_X[i];
+                int ny = cy + STEP_Y[i];
+                if (nx < 0 || ny < 0 || nx >= size || ny >= size) {
+                    continue;
+                }
+                int n = ny * size + nx;
+                if (blocked[n]) {
+                    continue;
+                }
+                // No cutting corners past a blocked cell
+                if (i >= 4 && (blocked[cy * size + nx] || blocked[ny * size + cx])) {
+                    continue;
+                }
+                float g = cost[c] + STEP_COST[i];
+                if (visited[n] != generation) {
+                    visit(n, g, c);
+                } else if (closed[n] || g >= cost[n]) {
+                    continue;
+                } else {
+                    cost[n] = g;
+                    parent[n] = c;
+                }
+                push(n, g + heuristic(n, goal));
+            }
+        }
+        return false;
+    }
+
+    private void visit(int c, float g, int from) {
+        visited[c] = generation;
+        closed[c] = false;
+        cost[c] = g;
+        parent[c] = from;
+    }
+
+    // Octile distance in cells
+    private float heuristic(int a, int b) {
+        int dx = Math.abs((a % size) - (b % size));
+        int dy = Math.abs((a / size) - (b / size));
+        return (dx + dy) + ((SQRT2 - 2) * Math.min(dx, dy));
+    }
+
+    private void push(int c, float key) {
+        int i = heapSize++;
+        while (i > 0) {
+            int up = (i - 1) / 2;
+            if (heapKey[up] <= key) {
+                break;
+            }
+            heap[i] = heap[up];
+            heapKey[i] = heapKey[up];
+            i = up;
+        }
+        heap[i] = c;
+        heapKey[i] = key;
+    }
+
+    private int pop() {
+        int top = heap[0];
+        int last = heap[--heapSize];
+        float key = heapKey[heapSize];
+        int i = 0;
+        while (true) {
+            int child = (2 * i) + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) {
+                child++;
+            }
+            if (key <= heapKey[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapKey[i] = heapKey[child];
+            i = child;
+        }
+        heap[i] = last;
+        heapKey[i] = key;
+        return top;
+    }
+
+    // Line of sight between two points across the inflated grid, sampled finely enough that
+    // a line clipping the corner of a blocked cell is caught
+    private boolean clear(int x0, int y0, int x1, int y1) {
+        double step = cellSize / (double) SIGHT_SAMPLES;
+        int n = (int) Math.ceil(Math.hypot(x1 - x0, y1 - y0) / step);
+        for (int i = 1; i <= n; i++) {
+            double t = (double) i / n;
+            if (isBlocked((int) Math.round(x0 + (t * (x1 - x0))), (int) Math.round(y0 + (t * (y1 - y0))))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Search outward in square rings for the closest unblocked cell
+    private int nearestFree(int c) {
+        if (c < 0) {
+            return -1;
+        }
+        if (!blocked[c]) {
+            return c;
+        }
+        int cx = c % size;
+        int cy = c / size;
+        for (int r = 1; r < size; r++) {
+            int best = -1;
+            int bestDist = Integer.MAX_VALUE;
+            for (int y = cy - r; y <= cy + r; y++) {
+                for (int x = cx - r; x <= cx + r; x++) {
+                    if (Math.max(Math.abs(x - cx), Math.abs(y - cy)) != r ||
+                            x < 0 || y < 0 || x >= size || y >= size) {
+                        continue;
+                    }
+                    int n = y * size + x;
+                    int dist = ((x - cx) * (x - cx)) + ((y - cy) * (y - cy));
+                    if (!blocked[n] && dist < bestDist) {
+                        best = n;
+                        bestDist = dist;
+                    }
+                }
+            }
+            if (best >= 0) {
+                return best;
+            }
+        }
+        return -1;
+    }
+
+    // Mark every cell whose center is within radius of an obstacle or wall
+    private void inflate(int radius) {
+        int reach = (int) Math.ceil((double) radius / cellSize);
+        boolean[] raw = new boolean[blocked.length];
+        for (int c = 0; c < raw.length; c++) {
+            raw[c] = Field.isObstacle(centerX(c), centerY(c));
+        }
+
+        double half = Field.FIELD_WIDTH / 2.0;
+        for (int c = 0; c < blocked.length; c++) {
+            double x = centerX(c);
+            double y = centerY(c);
+            if (half - Math.abs(x) < radius || half - Math.abs(y) < radius) {
+                blocked[c] = true;
+                continue;
+            }
+            int cx = c % size;
+            int cy = c / size;
+            for (int ny = Math.max(0, cy - reach); ny <= Math.min(size - 1, cy + reach) && !blocked[c]; ny++) {
+                for (int nx = Math.max(0, cx - reach); nx <= Math.min(size - 1, cx + reach); nx++) {
+                    int n = ny * size + nx;
+                    if (raw[n] && Math.hypot(centerX(n) - x, centerY(n) - y) <= radius) {
+                        blocked[c] = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void add(int x, int y) {
+        pathX[pathLength] = x;
+        pathY[pathLength] = y;
+        pathLength++;
+    }
+
+    private int cell(int x, int y) {
+        int cx = (int) Math.floor((x - origin) / cellSize);
+        int cy = (int) Math.floor((y - origin) / cellSize);
+        if (cx < 0 || cy < 0 || cx >= size || cy >= size) {
+            return -1;
+        }
+        return cy * size + cx;
+    }
+
+    private int centerX(int c) {
+        return (int) (origin + ((c % size) + 0.5) * cellSize);
+    }
+
+    private int centerY(int c) {
+        return (int) (origin + ((c / size) + 0.5) * cellSize);
+    }
+}
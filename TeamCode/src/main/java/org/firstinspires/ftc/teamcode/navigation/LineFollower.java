@@ -0,0 +1,164 @@
+package org.firstinspires.ftc.teamcode.navigation;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.sensors.Color;
+import org.firstinspires.ftc.teamcode.sensors.PollRate;
+import org.firstinspires.ftc.teamcode.wheels.MotorSide;
+import org.firstinspires.ftc.teamcode.wheels.TankDrive;
+
+/**
+ * Proportional line follower for two downward-facing color sensors straddling a white line
+ * <p>
+ * The sensors must sit side by side across the direction of travel, about a line width apart,
+ * so that each sees the line as the robot drifts toward its side. A front/back pair on the
+ * centerline, as on the RedBeaconAuto bot, sees the same line from both sensors and gives no
+ * steering error.
+ * <p>
+ * Each sensor's alpha is scaled to a 0.0 (gray) - 1.0 (white) coverage value and the difference
+ * between the two is used as a continuous steering error. Call {@link #loop()} once per OpMode
+ * loop; both sensors are polled on every call.
+ */
+public class LineFollower {
+    // Alpha readings over gray tile and white tape; the midpoint matches the old threshold of 9
+    public static final int DEFAULT_GRAY = 3;
+    public static final int DEFAULT_WHITE = 15;
+    public static final double DEFAULT_SPEED = 0.75;
+    public static final double DEFAULT_GAIN = 0.75;
+
+    // Coverage below which a sensor is considered off the line
+    private static final double LINE_MIN = 0.25;
+
+    private final TankDrive tank;
+    private final Color left;
+    private final Color right;
+
+    private int gray = DEFAULT_GRAY;
+    private int white = DEFAULT_WHITE;
+    private double speed = DEFAULT_SPEED;
+    private double gain = DEFAULT_GAIN;
+
+    // Dynamic things we need to remember
+    private boolean enabled = false;
+    private double leftCoverage = 0;
+    private double rightCoverage = 0;
+    private double error = 0;
+    private double lastError = 0;
+    private boolean onLine = false;
+
+    public LineFollower(TankDrive tank, Color left, Color right) {
+        this.tank = tank;
+        this.left = left;
+        this.right = right;
+    }
+
+    public boolean isAvailable() {
+        return tank != null && tank.isAvailable() &&
+                left != null && left.isAvailable() &&
+                right != null && right.isAvailable();
+    }
+
+    public void setLevels(int gray, int white) {
+        if (white <= gray) {
+            throw new IllegalArgumentException("LineFollower white level must exceed gray level: " +
+                    white + " <= " + gray);
+        }
+        this.gray = gray;
+        this.white = white;
+    }
+
+    /**
+     * @param speed Forward speed, 0.0 - 1.0
+     */
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * @param gain Differential speed applied per unit of line offset error
+     */
+    public void setGain(double gain) {
+        this.gain = gain;
+    }
+
+    public void start() {
+        if (!isAvailable()) {
+            return;
+        }
+        left.setPollRate(PollRate.ACTIVE);
+        right.setPollRate(PollRate.ACTIVE);
+        tank.setTeleop(false);
+        lastError = 0;
+        enabled = true;
+    }
+
+    public void stop() {
+        enabled = false;
+        if (tank != null) {
+            tank.stop();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Read both sensors and update the drive speeds
+     *
+     * @return True if either sensor is on the line
+     */
+    public boolean loop() {
+        if (!isAvailable()) {
+            return false;
+        }
+
+        leftCoverage = coverage(left.alpha());
+        rightCoverage = coverage(right.alpha());
+        onLine = (leftCoverage > LINE_MIN || rightCoverage > LINE_MIN);
+
+        // Positive error means the line is to our left
+        if (onLine) {
+            error = leftCoverage - rightCoverage;
+            lastError = error;
+        } else {
+            // Keep turning toward the side we last saw the line
+            error = Math.signum(lastError);
+        }
+
+        if (enabled) {
+            double turn = gain * error;
+            double l = com.qualcomm.robotcore.util.Range.clip(speed - turn, -1.0, 1.0);
+            double r = com.qualcomm.robotcore.util.Range.clip(speed + turn, -1.0, 1.0);
+
+            // Remember that "forward" is "negative" per the joystick conventions
+            tank.setSpeed(-l, MotorSide.LEFT);
+            tank.setSpeed(-r, MotorSide.RIGHT);
+        }
+        return onLine;
+    }
+
+    public boolean isOnLine() {
+        return onLine;
+    }
+
+    /**
+     * @return Line offset, -1.0 (line fully right) to 1.0 (line fully left)
+     */
+    public double getError() {
+        return error;
+    }
+
+    public boolean bothOnLine() {
+        return leftCoverage > LINE_MIN && rightCoverage > LINE_MIN;
+    }
+
+    public void display(Telemetry telemetry) {
+        telemetry.addData("Line L/R", "%.2f/%.2f", leftCoverage, rightCoverage);
+        telemetry.addData("Line Error", "%.2f", error);
+    }
+
+    private double coverage(int alpha) {
+        double value = (double) (alpha - gray) / (double) (white - gray);
+        return com.qualcomm.robotcore.util.Range.clip(value, 0.0, 1.0);
+    }
+}
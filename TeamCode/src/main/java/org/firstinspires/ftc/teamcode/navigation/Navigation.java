@@ -3,8 +3,15 @@ package org.firstinspires.ftc.teamcode.navigation;
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.hardware.Gamepad;
 
+import org.firstinspires.ftc.teamcode.config.VuforiaConfigs;
+import org.firstinspires.ftc.teamcode.field.Field;
+import org.firstinspires.ftc.teamcode.field.Geometry;
+import org.firstinspires.ftc.teamcode.field.Landmark;
 import org.firstinspires.ftc.teamcode.sensors.Gyro;
+import org.firstinspires.ftc.teamcode.sensors.PollRate;
 import org.firstinspires.ftc.teamcode.vuforia.VuforiaFTC;
+import org.firstinspires.ftc.teamcode.vuforia.VuforiaTarget;
+import org.firstinspires.ftc.teamcode.wheels.MotorSide;
 import org.firstinspires.ftc.teamcode.wheels.TankDrive;
 
 public class Navigation {
@@ -12,17 +19,62 @@ public class Navigation {
     private final TankDrive tank;
     private final VuforiaFTC vuforia;
     private final Gyro gyro;
+    private final VuforiaTarget[] config;
+    private final Landmark[] landmarks;
+    private final boolean[] active;
 
     private boolean headingValid;
     private double headingSyncExpires;
 
-    public static final int FULL_CIRCLE = 360;
+    // Active turn, in raw gyro degrees so vision heading syncs do not move the goalposts
+    private boolean turning = false;
+    private boolean turnTimedOut = false;
+    private boolean turnTeleop = false;
+    private PollRate turnPollRate = PollRate.ACTIVE;
+    private int turnTarget = 0;
+    private double turnExpires = 0;
+
+    // Result of the last findTrackable()
+    private int trackable = -1;
+    private int trackableTurn = 0;
+
+    // Seconds a vision heading sync is trusted before the gyro is considered weak
+    private static final float HEADING_SYNC_TIMEOUT = 5.0f;
+
+    // TODO: Approximate; calibrate for the phone in use
+    // Horizontal field of view of the camera and its axis relative to the robot's heading
+    private static final int CAMERA_FOV = 60;
+    private static final int CAMERA_OFFSET = 0;
+
+    // Limits beyond which Vuforia does not reliably track a target
+    private static final int TRACK_RANGE_MIN = 300;
+    private static final int TRACK_RANGE_MAX = 3000;
+    private static final int VIEW_ANGLE_MAX = 60;
+
+    // Turn controller: power proportional to heading error, damped by the gyro rate
+    private static final double TURN_GAIN = 0.02;
+    private static final double TURN_DAMPING = 0.002;
+    private static final double TURN_MIN = 0.1;
+    private static final double TURN_MAX = 0.5;
+    private static final int TURN_TOLERANCE = 2;
+    private static final int TURN_SETTLE_RATE = 10;
+    private static final float TURN_TIMEOUT = 1.0f;
+    private static final float TURN_TIMEOUT_DEGREE = 0.02f;
+
+    // Degrees of turn we would trade for each millimeter closer when choosing a target
+    private static final double RANGE_WEIGHT = 0.01;
 
     public Navigation(OpMode op, TankDrive tank, VuforiaFTC vuforia, Gyro gyro) {
         this.op = op;
         this.tank = tank;
         this.vuforia = vuforia;
         this.gyro = gyro;
+        this.config = VuforiaConfigs.Field();
+        this.landmarks = new Landmark[config.length];
+        this.active = new boolean[config.length];
+        for (int i = 0; i < config.length; i++) {
+            landmarks[i] = Field.find(config[i].name);
+        }
 
         this.headingValid = false;
         this.headingSyncExpires = 0;
@@ -32,74 +84,196 @@ public class Navigation {
         tank.setTeleop(enable);
     }
 
+    /**
+     * Call once per OpMode loop to drive, track and step any active turn
+     */
     public void loop(Gamepad pad) {
         tank.loop(pad);
         vuforia.track();
+        if (turning) {
+            stepTurn();
+        }
+
+        // Keep the gyro aligned with the field while we have a fix
+        if (!vuforia.isStale()) {
+            gyro.setHeading(vuforia.getHeading());
+            headingValid = true;
+            headingSyncExpires = op.time + HEADING_SYNC_TIMEOUT;
+        }
     }
 
     public void loop() {
         loop(null);
     }
 
+    /**
+     * Begin a turn; progress is made in {@link #loop(Gamepad)} until {@link #isTurning()} is
+     * false. Driver control is suspended for the duration of the turn and restored after.
+     *
+     * @param angle Degrees to turn, CW positive
+     */
     public void turnAngle(int angle) {
+        if (!gyro.isReady()) {
+            return;
+        }
+        if (!turning) {
+            turnTeleop = tank.isTeleop();
+            turnPollRate = gyro.getPollRate();
+        }
         setTeleop(false);
-        //DriveToParams param = new DriveToParams(this, VuforiaAuto.SENSOR_TYPE.GYRO);
-        //param.timeout = (Math.abs(angle) * TIMEOUT_DEGREE) + TIMEOUT_DEFAULT;
-
-        // Normalized heading and bearing
-        int target = gyro.getHeading() + angle;
+        gyro.setPollRate(PollRate.ACTIVE);
 
-        // Turn CCW for negative angles
-        if (angle > 0) {
-            //param.greaterThan(target - OVERRUN_GYRO);
-        } else {
-            //param.lessThan(target + OVERRUN_GYRO);
-        }
-        // TODO: Something like DriveTo but interruptable for tracking
-        //drive = new DriveTo(new DriveToParams[]{param});
+        turnTarget = gyro.getHeadingRaw() + angle;
+        turnExpires = op.time + TURN_TIMEOUT + (Math.abs(angle) * TURN_TIMEOUT_DEGREE);
+        turnTimedOut = false;
+        turning = true;
     }
 
+    /**
+     * Begin a turn to a field heading, the short way around
+     *
+     * @param target Field heading, 0° north, CW positive
+     */
     public void turnHeading(int target) {
         // Normalized heading and turns in each direction
         int current = gyro.getHeadingBasic();
-        int cw = (target - current + FULL_CIRCLE) % FULL_CIRCLE;
-        int ccw = (current - target + FULL_CIRCLE) % FULL_CIRCLE;
+        int cw = Geometry.normalize(target - current);
+        int ccw = Geometry.normalize(current - target);
 
         // Turn the short way
         if (Math.abs(cw) <= Math.abs(ccw)) {
-            // TODO: Turn CW, monitoring our position as we go
+            turnAngle(cw);
         } else {
-            // TODO: Turn -CCW, monitoring our position as we go
+            turnAngle(-ccw);
         }
     }
 
-    public boolean findTrackable(NavHint hint) {
-        if (hint == null || hint.heading == null) {
-            // TODO: No heading hint
+    public boolean isTurning() {
+        return turning;
+    }
+
+    /**
+     * @return True if the last turn ended on its timeout rather than within tolerance
+     */
+    public boolean isTurnTimedOut() {
+        return turnTimedOut;
+    }
+
+    public void cancelTurn() {
+        if (turning) {
+            endTurn();
+        }
+    }
+
+    private void stepTurn() {
+        int error = turnTarget - gyro.getHeadingRaw();
+        int rate = gyro.getRate();
+
+        // Done when on target and nearly stopped, or out of time
+        if (Math.abs(error) <= TURN_TOLERANCE && Math.abs(rate) <= TURN_SETTLE_RATE) {
+            endTurn();
+            return;
+        }
+        if (op.time > turnExpires) {
+            turnTimedOut = true;
+            endTurn();
+            return;
         }
-        if (!headingValid) {
-            // TODO: No current heading
-        } else if (op.time > headingSyncExpires) {
-            // TODO: Weak current heading
+
+        // Damping brakes ahead of the target instead of overshooting it
+        double power = (TURN_GAIN * error) - (TURN_DAMPING * rate);
+        power = com.qualcomm.robotcore.util.Range.clip(power, -TURN_MAX, TURN_MAX);
+        if (Math.abs(error) > TURN_TOLERANCE && Math.abs(power) < TURN_MIN) {
+            power = Math.signum(error) * TURN_MIN;
         }
-        return false;
+
+        // Turning clockwise increases heading; "forward" is "negative" per the joystick conventions
+        tank.setSpeed(-power, MotorSide.LEFT);
+        tank.setSpeed(power, MotorSide.RIGHT);
     }
 
-    // TODO: Something to find the closest tracking target *by heading and distance*
-    /*
-    private int closestTarget(Field.AllianceColor color) {
-        int index = -1;
-        int min = Integer.MAX_VALUE;
-        for (int i = 0; i < config.length; i++) {
-            if (config[i].color.equals(color)) {
-                int distance = vuforia.distance(config[i].adjusted[0], config[i].adjusted[1]);
-                if (distance < min) {
-                    min = distance;
-                    index = i;
-                }
+    private void endTurn() {
+        turning = false;
+        tank.stop();
+        setTeleop(turnTeleop);
+        gyro.setPollRate(turnPollRate);
+    }
+
+    /**
+     * Predict which target should come into view from the current pose, and the turn needed
+     * to bring it into the camera frustum
+     * <p>
+     * Position and heading come from the hint when provided, otherwise from the last vision
+     * fix and the vision-synced gyro. Pose uncertainty from the hint (or the defaults) narrows
+     * the usable part of the frustum so the target is still in view if our estimate is off.
+     * Inactive targets are ignored.
+     *
+     * @param hint Pose estimate, or null to use our own
+     * @return True if a target was found; see {@link #getTrackable()} and
+     * {@link #getTrackableTurn()}
+     */
+    public boolean findTrackable(NavHint hint) {
+        trackable = -1;
+        trackableTurn = 0;
+
+        // Where are we?
+        double x;
+        double y;
+        if (hint != null && hint.position != null) {
+            x = hint.position[0];
+            y = hint.position[1];
+        } else if (vuforia.getTimestamp() != 0) {
+            x = vuforia.getXPrecise();
+            y = vuforia.getYPrecise();
+        } else {
+            return false;
+        }
+        int positionErr = NavHint.DEFAULT_POSITION_ERR;
+        if (hint != null) {
+            positionErr = hint.positionErr;
+        }
+
+        // Which way are we facing?
+        double heading;
+        int headingErr = NavHint.DEFAULT_HEADING_ERR;
+        if (hint != null && hint.heading != null) {
+            heading = hint.heading;
+            headingErr = hint.headingErr;
+        } else if (headingValid) {
+            heading = gyro.getHeading();
+            if (op.time > headingSyncExpires) {
+                // Gyro drift since the last sync
+                headingErr *= 2;
             }
+        } else {
+            return false;
+        }
+        heading += CAMERA_OFFSET;
+
+        for (int i = 0; i < config.length; i++) {
+            active[i] = i < vuforia.getTargetCount() && vuforia.isActive(i);
         }
-        return index;
+        trackable = Field.bestInCone(landmarks, active, x, y, heading, CAMERA_FOV, headingErr,
+                positionErr, TRACK_RANGE_MIN, TRACK_RANGE_MAX, VIEW_ANGLE_MAX, RANGE_WEIGHT);
+        if (trackable < 0) {
+            return false;
+        }
+        trackableTurn = (int) Math.round(Field.turnIntoCone(landmarks[trackable], x, y, heading,
+                CAMERA_FOV, headingErr, positionErr));
+        return true;
+    }
+
+    /**
+     * @return CONFIG_TARGETS index selected by the last {@link #findTrackable(NavHint)}, or -1
+     */
+    public int getTrackable() {
+        return trackable;
+    }
+
+    /**
+     * @return Turn in degrees (CW positive) that brings {@link #getTrackable()} into view
+     */
+    public int getTrackableTurn() {
+        return trackableTurn;
     }
-    */
 }
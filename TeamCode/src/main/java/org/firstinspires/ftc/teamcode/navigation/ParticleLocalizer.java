@@ -0,0 +1,334 @@
+package org.firstinspires.ftc.teamcode.navigation;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.field.Field;
+import org.firstinspires.ftc.teamcode.field.Geometry;
+
+import java.util.Random;
+
+/**
+ * Monte Carlo localizer fusing odometry, gyro, wall range and vision fixes
+ * <p>
+ * Each particle is a pose hypothesis. {@link #predict(double, double, double)} moves every
+ * particle by the encoder distance and gyro turn with proportional noise, plus drift that
+ * grows with the time since the last step, and the update methods weight
+ * particles by how well they explain a measurement. Particles are resampled when the weights
+ * become too uneven. If a vision fix is inconsistent with every particle, e.g. after being
+ * pushed, the particles are re-seeded around the fix.
+ * <p>
+ * Particles are stored as parallel primitive arrays of fixed size, double-buffered for
+ * resampling, so nothing is allocated after construction.
+ */
+public class ParticleLocalizer {
+    public static final int DEFAULT_PARTICLES = 250;
+
+    // Spread below which the estimate is trusted for driving, in mm. A reset() with positionErr
+    // e has a spread of about e * √2, so this admits a start tile seed of up to ~175 mm.
+    public static final int CONFIDENT_SPREAD = 250;
+
+    // TODO: Tune from logged runs
+    // Motion noise: fraction of each move or turn, plus a random walk per √second elapsed so
+    // the particle cloud grows at the same rate however often we are called
+    private static final double DISTANCE_NOISE = 0.05;
+    private static final double TURN_NOISE = 0.05;
+    private static final double TURN_DRIFT = 1.5;
+    private static final double POSITION_DRIFT = 15.0;
+
+    // Weight retained by particles that drove into a wall or field structure
+    private static final float OBSTACLE_PENALTY = 0.05f;
+
+    // Total likelihood below which a measurement is considered inconsistent with every particle
+    private static final double LIKELIHOOD_MIN = 1e-12;
+
+    private final int count;
+    private final Random random;
+
+    // Particle state, swapped with the scratch arrays on each resample
+    private float[] x;
+    private float[] y;
+    private float[] heading;
+    private final float[] weight;
+    private float[] scratchX;
+    private float[] scratchY;
+    private float[] scratchHeading;
+
+    // Estimate, refreshed after every step
+    private double estX = 0;
+    private double estY = 0;
+    private double estHeading = 0;
+    private double spread = Double.MAX_VALUE;
+    private int resamples = 0;
+
+    public ParticleLocalizer() {
+        this(DEFAULT_PARTICLES, new Random());
+    }
+
+    /**
+     * @param random Source of noise; seed it to make replays repeatable
+     */
+    public ParticleLocalizer(int count, Random random) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("ParticleLocalizer count must be positive: " + count);
+        }
+        this.count = count;
+        this.random = random;
+        x = new float[count];
+        y = new float[count];
+        heading = new float[count];
+        weight = new float[count];
+        scratchX = new float[count];
+        scratchY = new float[count];
+        scratchHeading = new float[count];
+    }
+
+    /**
+     * Scatter the particles around a pose
+     *
+     * @param positionErr Standard deviation of the position in mm
+     * @param headingErr  Standard deviation of the heading in degrees
+     */
+    public void reset(double x, double y, double heading, double positionErr, double headingErr) {
+        for (int i = 0; i < count; i++) {
+            this.x[i] = (float) (x + (random.nextGaussian() * positionErr));
+            this.y[i] = (float) (y + (random.nextGaussian() * positionErr));
+            this.heading[i] = (float) Geometry.normalize(heading + (random.nextGaussian() * headingErr));
+            weight[i] = 1.0f / count;
+        }
+        estimate();
+    }
+
+    /**
+     * Move every particle
+     *
+     * @param distance Forward travel since the last call, in mm
+     * @param turn     Heading change since the last call, in degrees (CW positive)
+     * @param elapsed  Time since the last call, in seconds
+     */
+    public void predict(double distance, double turn, double elapsed) {
+        double walk = Math.sqrt(Math.max(0, elapsed));
+        double distanceNoise = Math.abs(distance) * DISTANCE_NOISE;
+        double turnNoise = (Math.abs(turn) * TURN_NOISE) + (TURN_DRIFT * walk);
+        double driftNoise = POSITION_DRIFT * walk;
+        for (int i = 0; i < count; i++) {
+            double t = turn + (random.nextGaussian() * turnNoise);
+            double d = distance + (random.nextGaussian() * distanceNoise);
+
+            // Move along the midpoint heading, then allow some sideways slip
+            double mid = Math.toRadians(heading[i] + (t / 2.0));
+            x[i] += (float) ((d * Math.sin(mid)) + (random.nextGaussian() * driftNoise));
+            y[i] += (float) ((d * Math.cos(mid)) + (random.nextGaussian() * driftNoise));
+            heading[i] = (float) Geometry.normalize(heading[i] + t);
+
+            if (Field.isObstacle(x[i], y[i])) {
+                weight[i] *= OBSTACLE_PENALTY;
+            }
+        }
+        normalizeWeights();
+        resampleIfNeeded();
+        estimate();
+    }
+
+    /**
+     * Weight particles by a vision fix
+     *
+     * @param positionErr Standard deviation of the fix position in mm
+     * @param headingErr  Standard deviation of the fix heading in degrees
+     */
+    public void updateFix(double fixX, double fixY, double fixHeading, double positionErr, double headingErr) {
+        double posScale = -0.5 / (positionErr * positionErr);
+        double headScale = -0.5 / (headingErr * headingErr);
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            double dx = x[i] - fixX;
+            double dy = y[i] - fixY;
+            double dh = Geometry.angleDiff(heading[i], fixHeading);
+            double likelihood = Math.exp((((dx * dx) + (dy * dy)) * posScale) + ((dh * dh) * headScale));
+            weight[i] *= (float) likelihood;
+            total += likelihood;
+        }
+        if (total / count < LIKELIHOOD_MIN) {
+            // We are not where we thought; trust the camera
+            reset(fixX, fixY, fixHeading, positionErr, headingErr);
+            return;
+        }
+        normalizeWeights();
+        resampleIfNeeded();
+        estimate();
+    }
+
+    /**
+     * Weight particles by a range sensor reading to the field wall
+     *
+     * @param range Distance from the robot center to the wall in mm
+     * @param mount Sensor axis relative to the robot heading, in degrees (CW positive)
+     * @param err   Standard deviation of the reading in mm
+     */
+    public void updateRange(double range, double mount, double err) {
+        if (range <= 0) {
+            return;
+        }
+        double scale = -0.5 / (err * err);
+
+        // Check the reading against every particle before committing to it
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            double diff = wallDistance(x[i], y[i], heading[i] + mount) - range;
+            total += Math.exp(diff * diff * scale);
+        }
+        if (total / count < LIKELIHOOD_MIN) {
+            // Probably a robot or field element in the way; ignore the reading
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            double diff = wallDistance(x[i], y[i], heading[i] + mount) - range;
+            weight[i] *= (float) Math.exp(diff * diff * scale);
+        }
+        normalizeWeights();
+        resampleIfNeeded();
+        estimate();
+    }
+
+    public double getX() {
+        return estX;
+    }
+
+    public double getY() {
+        return estY;
+    }
+
+    /**
+     * @return Field heading (0° north, CW positive), [0, 360)
+     */
+    public double getHeading() {
+        return estHeading;
+    }
+
+    /**
+     * @return RMS distance of the particles from the estimate, in mm
+     */
+    public double getSpread() {
+        return spread;
+    }
+
+    public boolean isConfident() {
+        return spread < CONFIDENT_SPREAD;
+    }
+
+    public int getResamples() {
+        return resamples;
+    }
+
+    public void display(Telemetry telemetry) {
+        telemetry.addData("Particles", "(%d,%d) %d° ±%dmm", (int) estX, (int) estY,
+                (int) estHeading, (int) spread);
+    }
+
+    /**
+     * Helpers
+     */
+
+    private void normalizeWeights() {
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += weight[i];
+        }
+        if (total <= 0) {
+            for (int i = 0; i < count; i++) {
+                weight[i] = 1.0f / count;
+            }
+            return;
+        }
+        float scale = (float) (1.0 / total);
+        for (int i = 0; i < count; i++) {
+            weight[i] *= scale;
+        }
+    }
+
+    // Low-variance resampling when the effective particle count falls below half
+    private void resampleIfNeeded() {
+        double sumSq = 0;
+        for (int i = 0; i < count; i++) {
+            sumSq += weight[i] * weight[i];
+        }
+        if (1.0 / sumSq >= count / 2.0) {
+            return;
+        }
+
+        double step = 1.0 / count;
+        double pick = random.nextDouble() * step;
+        double cumulative = weight[0];
+        int src = 0;
+        for (int i = 0; i < count; i++) {
+            while (pick > cumulative && src < count - 1) {
+                src++;
+                cumulative += weight[src];
+            }
+            scratchX[i] = x[src];
+            scratchY[i] = y[src];
+            scratchHeading[i] = heading[src];
+            pick += step;
+        }
+
+        float[] swap = x;
+        x = scratchX;
+        scratchX = swap;
+        swap = y;
+        y = scratchY;
+        scratchY = swap;
+        swap = heading;
+        heading = scratchHeading;
+        scratchHeading = swap;
+        for (int i = 0; i < count; i++) {
+            weight[i] = 1.0f / count;
+        }
+        resamples++;
+    }
+
+    // Weighted mean position, circular mean heading, and RMS spread
+    private void estimate() {
+        double sx = 0;
+        double sy = 0;
+        double sin = 0;
+        double cos = 0;
+        for (int i = 0; i < count; i++) {
+            double w = weight[i];
+            sx += w * x[i];
+            sy += w * y[i];
+            double h = Math.toRadians(heading[i]);
+            sin += w * Math.sin(h);
+            cos += w * Math.cos(h);
+        }
+        estX = sx;
+        estY = sy;
+        estHeading = Geometry.normalize(Math.toDegrees(Math.atan2(sin, cos)));
+
+        double var = 0;
+        for (int i = 0; i < count; i++) {
+            double dx = x[i] - estX;
+            double dy = y[i] - estY;
+            var += weight[i] * ((dx * dx) + (dy * dy));
+        }
+        spread = Math.sqrt(var);
+    }
+
+    // Distance along a field heading from x,y to the perimeter wall
+    private static double wallDistance(double x, double y, double heading) {
+        double half = Field.FIELD_WIDTH / 2.0;
+        double h = Math.toRadians(heading);
+        double dx = Math.sin(h);
+        double dy = Math.cos(h);
+        double tx = Double.MAX_VALUE;
+        double ty = Double.MAX_VALUE;
+        if (dx > 1e-6) {
+            tx = (half - x) / dx;
+        } else if (dx < -1e-6) {
+            tx = (-half - x) / dx;
+        }
+        if (dy > 1e-6) {
+            ty = (half - y) / dy;
+        } else if (dy < -1e-6) {
+            ty = (-half - y) / dy;
+        }
+        return Math.max(0, Math.min(tx, ty));
+    }
+}
@@ -0,0 +1,275 @@
+package org.firstinspires.ftc.teamcode.navigation;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.wheels.MotorSide;
+import org.firstinspires.ftc.teamcode.wheels.TankDrive;
+
+/**
+ * Pure-pursuit follower for a path of field-coordinate waypoints
+ * <p>
+ * Each loop steers along the arc that reaches the point one lookahead distance down the path,
+ * so the robot rounds corners at speed instead of stopping to point-turn between legs. The
+ * pose is supplied by the caller on every {@link #loop(double, double, double)}, typically the
+ * odometry-extrapolated fix from VuforiaFTC. Speed tapers off near the end of the path, or
+ * follows the speed profile when driving a {@link Trajectory}.
+ */
+public class PathFollower {
+    public static final int MAX_WAYPOINTS = 32;
+    public static final int DEFAULT_LOOKAHEAD = 400;
+    public static final double DEFAULT_SPEED = 0.75;
+    // TODO: Measure the wheel base on the competition bot
+    public static final int DEFAULT_TRACK_WIDTH = 360;
+
+    // Finish within this distance of the last waypoint
+    private static final int DONE_TOLERANCE = 50;
+    // Start slowing down this far from the last waypoint
+    private static final int SLOW_DISTANCE = 500;
+    private static final double SPEED_MIN = 0.2;
+
+    private final TankDrive tank;
+    private final int[] waypointX = new int[MAX_WAYPOINTS];
+    private final int[] waypointY = new int[MAX_WAYPOINTS];
+
+    // Either the waypoints above or a trajectory's samples
+    private int[] pathX = waypointX;
+    private int[] pathY = waypointY;
+    private int[] profile = null;
+    private int profileMax = 0;
+    private int length = 0;
+
+    private int lookahead = DEFAULT_LOOKAHEAD;
+    private double speed = DEFAULT_SPEED;
+    private int trackWidth = DEFAULT_TRACK_WIDTH;
+
+    // Dynamic things we need to remember
+    private boolean enabled = false;
+    private boolean done = false;
+    private int segment = 0;
+    private int nearest = 0;
+    private double targetX = 0;
+    private double targetY = 0;
+    private double curvature = 0;
+    private double remaining = 0;
+
+    public PathFollower(TankDrive tank) {
+        this.tank = tank;
+    }
+
+    public boolean isAvailable() {
+        return tank != null && tank.isAvailable();
+    }
+
+    /**
+     * @param lookahead Distance down the path to steer toward, in millimeters
+     */
+    public void setLookahead(int lookahead) {
+        if (lookahead <= 0) {
+            throw new IllegalArgumentException("PathFollower lookahead must be positive: " + lookahead);
+        }
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * @param speed Cruise speed, 0.0 - 1.0
+     */
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * @param trackWidth Distance between the left and right wheels, in millimeters
+     */
+    public void setTrackWidth(int trackWidth) {
+        this.trackWidth = trackWidth;
+    }
+
+    public void clearPath() {
+        pathX = waypointX;
+        pathY = waypointY;
+        profile = null;
+        length = 0;
+    }
+
+    public void addWaypoint(int x, int y) {
+        if (pathX != waypointX) {
+            clearPath();
+        }
+        if (length >= MAX_WAYPOINTS) {
+            throw new ArrayIndexOutOfBoundsException("PathFollower supports at most " +
+                    MAX_WAYPOINTS + " waypoints");
+        }
+        pathX[length] = x;
+        pathY[length] = y;
+        length++;
+    }
+
+    /**
+     * Follow the last path found by a GridPlanner
+     */
+    public void setPath(GridPlanner planner) {
+        clearPath();
+        for (int i = 0; i < planner.getLength(); i++) {
+            addWaypoint(planner.getX(i), planner.getY(i));
+        }
+    }
+
+    /**
+     * Follow a trajectory's samples at its profiled speeds. The setSpeed() cruise speed is
+     * ignored; the profile is scaled by the trajectory's full-power wheel speed.
+     */
+    public void setPath(Trajectory trajectory) {
+        pathX = trajectory.xArray();
+        pathY = trajectory.yArray();
+        profile = trajectory.speedArray();
+        profileMax = trajectory.getMaxSpeed();
+        length = trajectory.getLength();
+    }
+
+    public void start() {
+        if (!isAvailable() || length < 2) {
+            return;
+        }
+        tank.setTeleop(false);
+        segment = 0;
+        nearest = 0;
+        done = false;
+        enabled = true;
+    }
+
+    public void stop() {
+        enabled = false;
+        if (tank != null) {
+            tank.stop();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Update the drive speeds from the current pose
+     *
+     * @param x       Robot X in field millimeters
+     * @param y       Robot Y in field millimeters
+     * @param heading Robot heading in field degrees (0° north, CW positive)
+     * @return True when the end of the path has been reached; the drive is stopped
+     */
+    public boolean loop(double x, double y, double heading) {
+        if (!enabled) {
+            return done;
+        }
+
+        int last = length - 1;
+        remaining = Math.hypot(pathX[last] - x, pathY[last] - y);
+        if (remaining < DONE_TOLERANCE || pastEnd(x, y)) {
+            done = true;
+            stop();
+            return true;
+        }
+        findTarget(x, y);
+
+        // Target in the robot frame: forward along the heading, lateral positive to the right
+        double h = Math.toRadians(heading);
+        double dx = targetX - x;
+        double dy = targetY - y;
+        double forward = (dx * Math.sin(h)) + (dy * Math.cos(h));
+        double lateral = (dx * Math.cos(h)) - (dy * Math.sin(h));
+        double dist = Math.hypot(dx, dy);
+        if (forward >= 0) {
+            curvature = (2.0 * lateral) / (dist * dist);
+        } else {
+            // Target is behind us; turn as tightly as the arc allows toward its side
+            curvature = (lateral >= 0 ? 2.0 : -2.0) / dist;
+        }
+
+        double v;
+        if (profile != null) {
+            // Profiled speed at the sample we are passing; never stall at the ends
+            while (nearest < last &&
+                    Math.hypot(pathX[nearest + 1] - x, pathY[nearest + 1] - y) <=
+                            Math.hypot(pathX[nearest] - x, pathY[nearest] - y)) {
+                nearest++;
+            }
+            v = Math.max((double) profile[nearest] / profileMax, SPEED_MIN);
+        } else {
+            v = speed * com.qualcomm.robotcore.util.Range.clip(remaining / SLOW_DISTANCE, SPEED_MIN, 1.0);
+        }
+        double l = v * (1.0 + (curvature * trackWidth / 2.0));
+        double r = v * (1.0 - (curvature * trackWidth / 2.0));
+        double max = Math.max(Math.abs(l), Math.abs(r));
+        if (max > 1.0) {
+            l /= max;
+            r /= max;
+        }
+
+        // Remember that "forward" is "negative" per the joystick conventions
+        tank.setSpeed(-l, MotorSide.LEFT);
+        tank.setSpeed(-r, MotorSide.RIGHT);
+        return false;
+    }
+
+    public void display(Telemetry telemetry) {
+        telemetry.addData("Path", "%d/%d %dmm", segment + 1, length - 1, (int) remaining);
+        telemetry.addData("Pursuit", "(%d,%d) k=%.4f", (int) targetX, (int) targetY, curvature);
+    }
+
+    /**
+     * Helpers
+     */
+
+    // Furthest intersection of the lookahead circle with the path, never moving backward
+    private void findTarget(double x, double y) {
+        int last = length - 1;
+        boolean found = false;
+        for (int i = segment; i < last; i++) {
+            double x0 = pathX[i];
+            double y0 = pathY[i];
+            double dx = pathX[i + 1] - x0;
+            double dy = pathY[i + 1] - y0;
+            double fx = x0 - x;
+            double fy = y0 - y;
+            double a = (dx * dx) + (dy * dy);
+            double b = 2.0 * ((fx * dx) + (fy * dy));
+            double c = (fx * fx) + (fy * fy) - ((double) lookahead * lookahead);
+            double disc = (b * b) - (4.0 * a * c);
+            if (a > 0 && disc >= 0) {
+                double t = (-b + Math.sqrt(disc)) / (2.0 * a);
+                if (t >= 0 && t <= 1) {
+                    segment = i;
+                    targetX = x0 + (t * dx);
+                    targetY = y0 + (t * dy);
+                    found = true;
+                }
+            }
+            // Later segments that start outside the circle are not reachable yet
+            if (c > 0 && i > segment) {
+                break;
+            }
+        }
+        if (found) {
+            return;
+        }
+
+        // Inside the lookahead of the end; aim straight for it
+        if (Math.hypot(pathX[last] - x, pathY[last] - y) <= lookahead) {
+            segment = last - 1;
+        }
+
+        // Otherwise we are off the path; head for the end of the current segment
+        targetX = pathX[segment + 1];
+        targetY = pathY[segment + 1];
+    }
+
+    // True once we are beyond the last waypoint along the final segment
+    private boolean pastEnd(double x, double y) {
+        int last = length - 1;
+        double dx = pathX[last] - pathX[last - 1];
+        double dy = pathY[last] - pathY[last - 1];
+        return segment == last - 1 && ((x - pathX[last]) * dx) + ((y - pathY[last]) * dy) > 0;
+    }
+}
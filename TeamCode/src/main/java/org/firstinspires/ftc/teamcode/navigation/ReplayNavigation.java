@@ -0,0 +1,97 @@
+package org.firstinspires.ftc.teamcode.navigation;
+
+import org.firstinspires.ftc.teamcode.config.VuforiaConfigs;
+import org.firstinspires.ftc.teamcode.field.Geometry;
+import org.firstinspires.ftc.teamcode.vuforia.VuforiaFTC;
+import org.firstinspires.ftc.teamcode.vuforia.VuforiaReplay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Workstation entry point that drives navigation from a recorded Vuforia session
+ * <p>
+ * Plays a {@link org.firstinspires.ftc.teamcode.vuforia.VuforiaRecorder} log through
+ * VuforiaFTC's fusion and quality gating and into the particle localizer, printing one CSV row
+ * per accepted fix. Needs only the SDK and Vuforia jars on the classpath, not a phone:
+ * <pre>
+ * java ReplayNavigation vuforia-1234.bin [speed]
+ * </pre>
+ * The default speed releases one recorded frame per poll; see {@link VuforiaReplay} for the
+ * others. Logs hold no odometry, so the motion between accepted fixes stands in for the
+ * encoders and gyro; between fixes the localizer only drifts with elapsed time.
+ */
+public class ReplayNavigation {
+    // Fix weighting, as in VuforiaAuto
+    private static final int FIX_POSITION_ERR = 50;
+    private static final int FIX_HEADING_ERR = 3;
+    private static final float FIX_QUALITY_MIN = 0.1f;
+
+    // Poll interval, in ms
+    private static final int POLL_INTERVAL = 10;
+
+    // Fixed so that runs of the same log are comparable
+    private static final long SEED = 0;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayNavigation <log> [speed]");
+            System.exit(1);
+        }
+        double speed = VuforiaReplay.SPEED_STEP;
+        if (args.length > 1) {
+            speed = Double.parseDouble(args[1]);
+        }
+
+        VuforiaReplay replay = new VuforiaReplay(new File(args[0]), speed);
+        VuforiaFTC vuforia = new VuforiaFTC(VuforiaConfigs.AssetName, VuforiaConfigs.TargetCount,
+                VuforiaConfigs.Field(), VuforiaConfigs.Bot());
+        vuforia.setSource(replay);
+        vuforia.init();
+        vuforia.start();
+        ParticleLocalizer localizer = new ParticleLocalizer(ParticleLocalizer.DEFAULT_PARTICLES, new Random(SEED));
+
+        System.out.println("time,x,y,heading,quality,rejected,est_x,est_y,est_heading,spread");
+        long start = System.currentTimeMillis();
+        long lastFix = 0;
+        long lastPredict = start;
+        double lastX = 0;
+        double lastY = 0;
+        double lastHeading = 0;
+        while (!replay.isFinished()) {
+            vuforia.track();
+            long now = System.currentTimeMillis();
+            double elapsed = (now - lastPredict) / 1000.0;
+            lastPredict = now;
+            if (vuforia.getTimestamp() != lastFix) {
+                float quality = Math.max(vuforia.getQuality(), FIX_QUALITY_MIN);
+                double x = vuforia.getXPrecise();
+                double y = vuforia.getYPrecise();
+                double heading = vuforia.getHeadingPrecise();
+                if (lastFix == 0) {
+                    // Seed on the first fix; there is no start tile in a log
+                    localizer.reset(x, y, heading, FIX_POSITION_ERR / quality, FIX_HEADING_ERR / quality);
+                } else {
+                    // Travel along the previous heading, as the drive encoders would report it
+                    double h = Math.toRadians(lastHeading);
+                    double travel = ((x - lastX) * Math.sin(h)) + ((y - lastY) * Math.cos(h));
+                    localizer.predict(travel, Geometry.angleDiff(heading, lastHeading), elapsed);
+                    localizer.updateFix(x, y, heading, FIX_POSITION_ERR / quality, FIX_HEADING_ERR / quality);
+                }
+                lastX = x;
+                lastY = y;
+                lastHeading = heading;
+                lastFix = vuforia.getTimestamp();
+                System.out.println(String.format("%d,%.1f,%.1f,%.1f,%.2f,%d,%.1f,%.1f,%.1f,%.1f",
+                        lastFix - start, x, y, heading, vuforia.getQuality(), vuforia.getRejected(),
+                        localizer.getX(), localizer.getY(), localizer.getHeading(), localizer.getSpread()));
+            } else if (lastFix != 0) {
+                localizer.predict(0, 0, elapsed);
+            }
+            // Stepped frames are stamped with the poll time, so polls must not share a millisecond
+            Thread.sleep(POLL_INTERVAL);
+        }
+        vuforia.stop();
+    }
+}
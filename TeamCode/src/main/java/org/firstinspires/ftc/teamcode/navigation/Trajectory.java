@@ -0,0 +1,168 @@
+package org.firstinspires.ftc.teamcode.navigation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Time-parameterized path: evenly spaced field-coordinate samples with the robot's center
+ * speed at each one
+ * <p>
+ * Built by {@link TrajectoryGenerator} or loaded from a precomputed asset. Sample times are
+ * derived from the spacing and speeds, so the stored form is just position and speed.
+ * <p>
+ * Format (big-endian, per DataOutputStream):
+ * <pre>
+ * header: int MAGIC, byte VERSION, short maxSpeed (mm/s), short count
+ * sample: short x, short y (mm), short speed (mm/s)
+ * </pre>
+ */
+public class Trajectory {
+    static final int MAGIC = 0x54524a31; // "TRJ1"
+    static final byte VERSION = 1;
+
+    private final int length;
+    private final int maxSpeed;
+    private final int[] x;
+    private final int[] y;
+    private final int[] speed;
+    private final int[] time;
+
+    /**
+     * @param maxSpeed Wheel speed at full power in mm/s; speeds are scaled against it to drive
+     */
+    Trajectory(int[] x, int[] y, int[] speed, int length, int maxSpeed) {
+        if (length < 2) {
+            throw new IllegalArgumentException("Trajectory must have at least 2 samples: " + length);
+        }
+        this.length = length;
+        this.maxSpeed = maxSpeed;
+        this.x = x;
+        this.y = y;
+        this.speed = speed;
+        this.time = new int[length];
+
+        // Constant acceleration between samples
+        double t = 0;
+        for (int i = 1; i < length; i++) {
+            double ds = Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]);
+            double v = (speed[i] + speed[i - 1]) / 2.0;
+            if (v > 0) {
+                t += (ds / v) * 1000.0;
+            }
+            time[i] = (int) Math.round(t);
+        }
+    }
+
+    public static Trajectory read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a trajectory");
+            }
+            int version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported trajectory version: " + version);
+            }
+            int maxSpeed = in.readShort();
+            int length = in.readShort();
+            if (length < 2) {
+                throw new IOException("Invalid trajectory length: " + length);
+            }
+            int[] x = new int[length];
+            int[] y = new int[length];
+            int[] speed = new int[length];
+            for (int i = 0; i < length; i++) {
+                x[i] = in.readShort();
+                y[i] = in.readShort();
+                speed[i] = in.readShort();
+            }
+            return new Trajectory(x, y, speed, length, maxSpeed);
+        } finally {
+            in.close();
+        }
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeShort(maxSpeed);
+            out.writeShort(length);
+            for (int i = 0; i < length; i++) {
+                out.writeShort(x[i]);
+                out.writeShort(y[i]);
+                out.writeShort(speed[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return Wheel speed at full power, in mm/s
+     */
+    public int getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public int getX(int index) {
+        return x[index];
+    }
+
+    public int getY(int index) {
+        return y[index];
+    }
+
+    /**
+     * @return Center speed at the sample in mm/s
+     */
+    public int getSpeed(int index) {
+        return speed[index];
+    }
+
+    /**
+     * @return Milliseconds from the start of the trajectory to the sample
+     */
+    public int getTime(int index) {
+        return time[index];
+    }
+
+    /**
+     * @return Total driving time in milliseconds
+     */
+    public int getDuration() {
+        return time[length - 1];
+    }
+
+    /**
+     * @return True if this trajectory runs from within tolerance of start to within tolerance
+     * of end
+     */
+    public boolean matches(double startX, double startY, double endX, double endY, int tolerance) {
+        return Math.hypot(x[0] - startX, y[0] - startY) <= tolerance &&
+                Math.hypot(x[length - 1] - endX, y[length - 1] - endY) <= tolerance;
+    }
+
+    // The follower reads these directly rather than copying them
+    int[] xArray() {
+        return x;
+    }
+
+    int[] yArray() {
+        return y;
+    }
+
+    int[] speedArray() {
+        return speed;
+    }
+}
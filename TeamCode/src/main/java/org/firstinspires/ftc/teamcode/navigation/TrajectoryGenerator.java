@@ -0,0 +1,259 @@
+package org.firstinspires.ftc.teamcode.navigation;
+
+/**
+ * Fits a spline through field waypoints and computes the fastest speed profile along it that
+ * respects the tank drive's wheel speed and acceleration limits
+ * <p>
+ * The spline is centripetal Catmull-Rom, which passes through every waypoint without the loops
+ * and overshoot of the uniform form on unevenly spaced points. It is resampled at even arc
+ * length steps; at each sample the outer wheel's speed and acceleration, v(1 + |k|w/2) for
+ * curvature k and track width w, are held to the limits. A forward pass limits acceleration
+ * from rest and a backward pass limits deceleration to rest, giving the time-optimal profile
+ * for this path under those limits.
+ * <p>
+ * The planner only guarantees that the straight legs between its waypoints are clear, and the
+ * spline can bulge off a leg into an inflated obstacle. When generating from a planner, any
+ * leg with a sample the planner reports as blocked is driven straight instead.
+ * <p>
+ * Generation allocates; do it during init() or offline (see
+ * {@link org.firstinspires.ftc.teamcode.config.TrajectoryConfigs}), not in loop().
+ */
+public class TrajectoryGenerator {
+    // TODO: Measure these on the competition bot
+    public static final int DEFAULT_MAX_SPEED = 1500;
+    public static final int DEFAULT_MAX_ACCEL = 1500;
+
+    // Sample spacing along the path, in mm
+    public static final int DEFAULT_SPACING = 25;
+
+    // Spline evaluations per waypoint segment while resampling
+    private static final int SUBSTEPS = 64;
+    // Centripetal parameterization
+    private static final double ALPHA = 0.5;
+
+    private int maxSpeed = DEFAULT_MAX_SPEED;
+    private int maxAccel = DEFAULT_MAX_ACCEL;
+    private int trackWidth = PathFollower.DEFAULT_TRACK_WIDTH;
+    private int spacing = DEFAULT_SPACING;
+
+    /**
+     * @param maxSpeed Wheel speed at full power, in mm/s
+     * @param maxAccel Wheel acceleration limit, in mm/s²
+     */
+    public void setLimits(int maxSpeed, int maxAccel) {
+        if (maxSpeed <= 0 || maxAccel <= 0) {
+            throw new IllegalArgumentException("TrajectoryGenerator limits must be positive: " +
+                    maxSpeed + ", " + maxAccel);
+        }
+        this.maxSpeed = maxSpeed;
+        this.maxAccel = maxAccel;
+    }
+
+    public void setTrackWidth(int trackWidth) {
+        this.trackWidth = trackWidth;
+    }
+
+    public void setSpacing(int spacing) {
+        if (spacing <= 0) {
+            throw new IllegalArgumentException("TrajectoryGenerator spacing must be positive: " + spacing);
+        }
+        this.spacing = spacing;
+    }
+
+    /**
+     * @return A trajectory along the last path found by the planner, clear of its obstacles
+     */
+    public Trajectory generate(GridPlanner planner) {
+        int n = planner.getLength();
+        int[] wx = new int[n];
+        int[] wy = new int[n];
+        for (int i = 0; i < n; i++) {
+            wx[i] = planner.getX(i);
+            wy[i] = planner.getY(i);
+        }
+        return generate(wx, wy, n, planner);
+    }
+
+    /**
+     * @return A trajectory through the waypoints, starting and ending at rest
+     */
+    public Trajectory generate(int[] wx, int[] wy, int count) {
+        return generate(wx, wy, count, null);
+    }
+
+    /**
+     * Helpers
+     */
+
+    private Trajectory generate(int[] wx, int[] wy, int count, GridPlanner planner) {
+        if (count < 2) {
+            throw new IllegalArgumentException("TrajectoryGenerator needs at least 2 waypoints: " + count);
+        }
+
+        // Upper bound on the sample count from the spline's chord length
+        double chords = 0;
+        for (int i = 1; i < count; i++) {
+            chords += Math.hypot(wx[i] - wx[i - 1], wy[i] - wy[i - 1]);
+        }
+        int capacity = (int) (chords * 2 / spacing) + count + 2;
+        double[] sx = new double[capacity];
+        double[] sy = new double[capacity];
+        int[] segment = new int[capacity];
+        boolean[] straight = new boolean[count - 1];
+        int length = resample(wx, wy, count, straight, sx, sy, segment);
+        while (planner != null && straighten(planner, sx, sy, segment, length, straight)) {
+            length = resample(wx, wy, count, straight, sx, sy, segment);
+        }
+
+        // Outer-wheel limits at each sample's curvature
+        double[] vmax = new double[length];
+        double[] amax = new double[length];
+        for (int i = 0; i < length; i++) {
+            double k = (i == 0 || i == length - 1) ? 0 :
+                    curvature(sx[i - 1], sy[i - 1], sx[i], sy[i], sx[i + 1], sy[i + 1]);
+            double scale = 1.0 + (Math.abs(k) * trackWidth / 2.0);
+            vmax[i] = maxSpeed / scale;
+            amax[i] = maxAccel / scale;
+        }
+
+        // Accelerate from rest, then decelerate to rest
+        double[] v = new double[length];
+        for (int i = 1; i < length; i++) {
+            double ds = Math.hypot(sx[i] - sx[i - 1], sy[i] - sy[i - 1]);
+            v[i] = Math.min(vmax[i], Math.sqrt((v[i - 1] * v[i - 1]) + (2.0 * amax[i - 1] * ds)));
+        }
+        v[length - 1] = 0;
+        for (int i = length - 2; i >= 0; i--) {
+            double ds = Math.hypot(sx[i + 1] - sx[i], sy[i + 1] - sy[i]);
+            v[i] = Math.min(v[i], Math.sqrt((v[i + 1] * v[i + 1]) + (2.0 * amax[i + 1] * ds)));
+        }
+
+        int[] x = new int[length];
+        int[] y = new int[length];
+        int[] speed = new int[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = (int) Math.round(sx[i]);
+            y[i] = (int) Math.round(sy[i]);
+            speed[i] = (int) v[i];
+        }
+        return new Trajectory(x, y, speed, length, maxSpeed);
+    }
+
+    // Mark each curved leg with a blocked sample to be driven straight; true if any changed
+    private static boolean straighten(GridPlanner planner, double[] sx, double[] sy, int[] segment,
+                                      int length, boolean[] straight) {
+        boolean changed = false;
+        for (int i = 0; i < length; i++) {
+            int seg = segment[i];
+            if (!straight[seg] && planner.isBlocked((int) Math.round(sx[i]), (int) Math.round(sy[i]))) {
+                straight[seg] = true;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // Walk the spline, or the straight legs, and emit a sample every spacing mm, plus the exact
+    // end point, recording the leg each sample came from
+    private int resample(int[] wx, int[] wy, int count, boolean[] straight,
+                         double[] sx, double[] sy, int[] segment) {
+        int length = 0;
+        sx[length] = wx[0];
+        sy[length] = wy[0];
+        segment[length] = 0;
+        length++;
+
+        double lastX = wx[0];
+        double lastY = wy[0];
+        double travel = 0;
+        for (int seg = 0; seg < count - 1; seg++) {
+            // Phantom end points extend the first and last segments straight
+            int i0 = Math.max(seg - 1, 0);
+            int i3 = Math.min(seg + 2, count - 1);
+            double p0x = (seg == 0) ? (2 * wx[0]) - wx[1] : wx[i0];
+            double p0y = (seg == 0) ? (2 * wy[0]) - wy[1] : wy[i0];
+            double p3x = (seg + 2 >= count) ? (2 * wx[count - 1]) - wx[count - 2] : wx[i3];
+            double p3y = (seg + 2 >= count) ? (2 * wy[count - 1]) - wy[count - 2] : wy[i3];
+
+            for (int step = 1; step <= SUBSTEPS; step++) {
+                double u = (double) step / SUBSTEPS;
+                double px;
+                double py;
+                if (straight[seg]) {
+                    px = wx[seg] + (u * (wx[seg + 1] - wx[seg]));
+                    py = wy[seg] + (u * (wy[seg + 1] - wy[seg]));
+                } else {
+                    px = catmullRom(p0x, p0y, wx[seg], wy[seg], wx[seg + 1], wy[seg + 1], p3x, p3y, u, true);
+                    py = catmullRom(p0x, p0y, wx[seg], wy[seg], wx[seg + 1], wy[seg + 1], p3x, p3y, u, false);
+                }
+                travel += Math.hypot(px - lastX, py - lastY);
+                lastX = px;
+                lastY = py;
+                if (travel >= spacing && length < sx.length - 1) {
+                    sx[length] = px;
+                    sy[length] = py;
+                    segment[length] = seg;
+                    length++;
+                    travel = 0;
+                }
+            }
+        }
+
+        // Always finish exactly on the last waypoint, merging a too-short final step
+        if (travel > 0 || length == 1) {
+            if (length > 1 && travel < spacing / 2.0) {
+                length--;
+            }
+            sx[length] = wx[count - 1];
+            sy[length] = wy[count - 1];
+            segment[length] = count - 2;
+            length++;
+        }
+        return length;
+    }
+
+    // Barry-Goldman evaluation of a centripetal Catmull-Rom segment between p1 and p2
+    private static double catmullRom(double p0x, double p0y, double p1x, double p1y,
+                                     double p2x, double p2y, double p3x, double p3y,
+                                     double u, boolean xAxis) {
+        double t0 = 0;
+        double t1 = t0 + knot(p0x, p0y, p1x, p1y);
+        double t2 = t1 + knot(p1x, p1y, p2x, p2y);
+        double t3 = t2 + knot(p2x, p2y, p3x, p3y);
+        double t = t1 + (u * (t2 - t1));
+
+        double p0 = xAxis ? p0x : p0y;
+        double p1 = xAxis ? p1x : p1y;
+        double p2 = xAxis ? p2x : p2y;
+        double p3 = xAxis ? p3x : p3y;
+
+        double a1 = lerp(p0, p1, t0, t1, t);
+        double a2 = lerp(p1, p2, t1, t2, t);
+        double a3 = lerp(p2, p3, t2, t3, t);
+        double b1 = lerp(a1, a2, t0, t2, t);
+        double b2 = lerp(a2, a3, t1, t3, t);
+        return lerp(b1, b2, t1, t2, t);
+    }
+
+    private static double knot(double ax, double ay, double bx, double by) {
+        // Keep coincident points from collapsing the parameterization
+        return Math.max(Math.pow(Math.hypot(bx - ax, by - ay), ALPHA), 1e-3);
+    }
+
+    private static double lerp(double a, double b, double ta, double tb, double t) {
+        return ((tb - t) * a + (t - ta) * b) / (tb - ta);
+    }
+
+    // Menger curvature through three points, 1/mm
+    private static double curvature(double ax, double ay, double bx, double by, double cx, double cy) {
+        double cross = ((bx - ax) * (cy - ay)) - ((by - ay) * (cx - ax));
+        double ab = Math.hypot(bx - ax, by - ay);
+        double bc = Math.hypot(cx - bx, cy - by);
+        double ca = Math.hypot(ax - cx, ay - cy);
+        double denom = ab * bc * ca;
+        if (denom <= 0) {
+            return 0;
+        }
+        return (2.0 * cross) / denom;
+    }
+}
@@ -0,0 +1,246 @@
+package org.firstinspires.ftc.teamcode.sensors;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.firstinspires.ftc.teamcode.field.Field;
+
+public class BeaconColor {
+    private static final String PREFS_NAME = "BeaconColor";
+    private static final String PREFS_RED = "-red";
+    private static final String PREFS_BLUE = "-blue";
+
+    // Normalized (red - blue) / alpha for each beacon color, until calibrated
+    private static final float DEFAULT_RED = 1.0f;
+    private static final float DEFAULT_BLUE = -1.0f;
+
+    // Sampling limits
+    public static final int MIN_SAMPLES = 3;
+    public static final int MAX_SAMPLES = 10;
+    public static final float MIN_CONFIDENCE = 0.75f;
+
+    private final Color color;
+    private final String name;
+
+    // Calibrated reference values
+    private float red = DEFAULT_RED;
+    private float blue = DEFAULT_BLUE;
+
+    // Calibration accumulators
+    private float calRedSum = 0;
+    private int calRedNum = 0;
+    private float calBlueSum = 0;
+    private int calBlueNum = 0;
+
+    // Classification state
+    private int samples = 0;
+    private int redVotes = 0;
+    private int blueVotes = 0;
+    private float sum = 0;
+    private boolean done = false;
+    private Field.AllianceColor result = null;
+    private float confidence = 0;
+
+    public BeaconColor(Color color, String name) {
+        this.color = color;
+        this.name = name;
+    }
+
+    public boolean isAvailable() {
+        return color != null && color.isAvailable();
+    }
+
+    /**
+     * @return (red - blue) / alpha for the current sensor reading, or NaN if the reading is empty
+     */
+    public float normalized() {
+        if (!isAvailable()) {
+            return Float.NaN;
+        }
+        int r = color.red();
+        int b = color.blue();
+        int a = color.alpha();
+        if (r == 0 && b == 0 && a == 0) {
+            return Float.NaN;
+        }
+        return (float) (r - b) / (float) Math.max(a, 1);
+    }
+
+    /**
+     * Discard any previous classification and begin a new one
+     */
+    public void reset() {
+        samples = 0;
+        redVotes = 0;
+        blueVotes = 0;
+        sum = 0;
+        done = false;
+        result = null;
+        confidence = 0;
+    }
+
+    /**
+     * Take one reading and update the classification. Call once per loop until this returns true.
+     *
+     * @return True when the classification is complete, either because it is confident or
+     * because MAX_SAMPLES readings have been taken
+     */
+    public boolean sample() {
+        if (done) {
+            return true;
+        }
+        if (!isAvailable()) {
+            done = true;
+            return true;
+        }
+
+        samples++;
+        float value = normalized();
+        if (!Float.isNaN(value)) {
+            sum += value;
+            if (value > threshold()) {
+                redVotes++;
+            } else {
+                blueVotes++;
+            }
+        }
+        classify();
+
+        if ((samples >= MIN_SAMPLES && confidence >= MIN_CONFIDENCE) || samples >= MAX_SAMPLES) {
+            done = true;
+        }
+        return done;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return The majority color seen by the sensor, or null if there were no valid readings
+     */
+    public Field.AllianceColor getColor() {
+        return result;
+    }
+
+    /**
+     * @return 0.0 - 1.0 score combining vote agreement and the distance of the mean reading from
+     * the calibrated threshold
+     */
+    public float getConfidence() {
+        return confidence;
+    }
+
+    public boolean isConfident() {
+        return result != null && confidence >= MIN_CONFIDENCE;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Calibration
+     */
+    public void calibrate(Field.AllianceColor beacon) {
+        float value = normalized();
+        if (Float.isNaN(value)) {
+            return;
+        }
+        if (Field.AllianceColor.RED.equals(beacon)) {
+            calRedSum += value;
+            calRedNum++;
+        } else {
+            calBlueSum += value;
+            calBlueNum++;
+        }
+    }
+
+    public void resetCalibration() {
+        calRedSum = 0;
+        calRedNum = 0;
+        calBlueSum = 0;
+        calBlueNum = 0;
+        red = DEFAULT_RED;
+        blue = DEFAULT_BLUE;
+    }
+
+    public int getCalibrationSamples(Field.AllianceColor beacon) {
+        if (Field.AllianceColor.RED.equals(beacon)) {
+            return calRedNum;
+        }
+        return calBlueNum;
+    }
+
+    public float getCalibration(Field.AllianceColor beacon) {
+        if (Field.AllianceColor.RED.equals(beacon)) {
+            return calRedNum > 0 ? calRedSum / calRedNum : red;
+        }
+        return calBlueNum > 0 ? calBlueSum / calBlueNum : blue;
+    }
+
+    public void load(Context context) {
+        if (context == null) {
+            return;
+        }
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        red = prefs.getFloat(name + PREFS_RED, DEFAULT_RED);
+        blue = prefs.getFloat(name + PREFS_BLUE, DEFAULT_BLUE);
+    }
+
+    public boolean save(Context context) {
+        if (context == null) {
+            return false;
+        }
+
+        // Refuse calibrations that cannot separate the colors
+        float newRed = getCalibration(Field.AllianceColor.RED);
+        float newBlue = getCalibration(Field.AllianceColor.BLUE);
+        if (newRed <= newBlue) {
+            return false;
+        }
+
+        red = newRed;
+        blue = newBlue;
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putFloat(name + PREFS_RED, red)
+                .putFloat(name + PREFS_BLUE, blue)
+                .commit();
+    }
+
+    /**
+     * Helpers
+     */
+
+    // Midpoint between the calibrated colors
+    private float threshold() {
+        return (red + blue) / 2;
+    }
+
+    private void classify() {
+        int votes = redVotes + blueVotes;
+        if (votes == 0) {
+            result = null;
+            confidence = 0;
+            return;
+        }
+
+        // Fraction of readings that agree with the majority
+        float agreement;
+        if (redVotes > blueVotes) {
+            result = Field.AllianceColor.RED;
+            agreement = (float) redVotes / votes;
+        } else {
+            result = Field.AllianceColor.BLUE;
+            agreement = (float) blueVotes / votes;
+        }
+
+        // Distance of the mean from the threshold, relative to the calibrated spread
+        float spread = (red - blue) / 2;
+        float margin = 1.0f;
+        if (spread > 0) {
+            margin = Math.min(1.0f, Math.abs((sum / votes) - threshold()) / spread);
+        }
+        confidence = agreement * margin;
+    }
+}
@@ -5,20 +5,32 @@ import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.hardware.I2cAddr;
 
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.teamcode.instrument.Instrument;
+import org.firstinspires.ftc.teamcode.instrument.Probe;
 
-public class Color {
+public class Color implements Pollable {
     private ColorSensor color;
+    private PortPoller poll;
+
+    // Last values written to the device, to elide redundant writes
+    private Boolean led = null;
+    private I2cAddr addr = null;
+    private final Probe readProbe;
+    private final Probe writeProbe;
 
     public Color(HardwareMap map, String name) {
         this(map, name, null);
     }
 
     public Color(HardwareMap map, String name, I2cAddr addr) {
+        readProbe = Instrument.probe(name, "read");
+        writeProbe = Instrument.probe(name, "write");
         try {
             color = map.colorSensor.get(name);
-            color.enableLed(true);
+            poll = new PortPoller(color);
+            setLED(true);
             if (addr != null) {
-                color.setI2cAddress(addr);
+                setI2cAddress(addr);
             }
         } catch (Exception e) {
             color = null;
@@ -33,34 +45,83 @@ public class Color {
         if (!isAvailable()) {
             return 0;
         }
-        return color.red();
+        long start = Instrument.start();
+        int value = color.red();
+        readProbe.stop(start);
+        return value;
     }
 
     public int green() {
         if (!isAvailable()) {
             return 0;
         }
-        return color.green();
+        long start = Instrument.start();
+        int value = color.green();
+        readProbe.stop(start);
+        return value;
     }
 
     public int blue() {
         if (!isAvailable()) {
             return 0;
         }
-        return color.blue();
+        long start = Instrument.start();
+        int value = color.blue();
+        readProbe.stop(start);
+        return value;
     }
 
     public int alpha() {
         if (!isAvailable()) {
             return 0;
         }
-        return color.alpha();
+        long start = Instrument.start();
+        int value = color.alpha();
+        readProbe.stop(start);
+        return value;
     }
 
     public void setLED(boolean state) {
         if (!isAvailable()) {
             return;
         }
+        if (led != null && led == state) {
+            writeProbe.avoided();
+            return;
+        }
+        long start = Instrument.start();
         color.enableLed(state);
+        writeProbe.stop(start);
+        led = state;
+    }
+
+    public void setI2cAddress(I2cAddr addr) {
+        if (!isAvailable() || addr == null) {
+            return;
+        }
+        if (addr.equals(this.addr)) {
+            writeProbe.avoided();
+            return;
+        }
+        long start = Instrument.start();
+        color.setI2cAddress(addr);
+        writeProbe.stop(start);
+        this.addr = addr;
+    }
+
+    @Override
+    public void setPollRate(PollRate rate) {
+        if (!isAvailable()) {
+            return;
+        }
+        poll.setRate(rate);
+    }
+
+    @Override
+    public PollRate getPollRate() {
+        if (!isAvailable()) {
+            return PollRate.IDLE;
+        }
+        return poll.getRate();
     }
 }
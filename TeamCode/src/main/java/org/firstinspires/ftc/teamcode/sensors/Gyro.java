@@ -3,18 +3,34 @@ package org.firstinspires.ftc.teamcode.sensors;
 import com.qualcomm.hardware.modernrobotics.ModernRoboticsI2cGyro;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
-public class Gyro {
+import org.firstinspires.ftc.teamcode.instrument.Instrument;
+import org.firstinspires.ftc.teamcode.instrument.Probe;
+
+public class Gyro implements Pollable {
     private static final int FULL_CIRCLE = 360;
 
+    // Rate is the heading change over at least this window, restarting after a long gap
+    private static final long RATE_WINDOW = 50 * 1000 * 1000;
+    private static final long RATE_STALE = 500 * 1000 * 1000;
+
     private ModernRoboticsI2cGyro gyro;
     private boolean ready = false;
     private int offset = 0;
+    private PortPoller poll;
+    private final Probe headingProbe;
+
+    // Rate estimate from the integrated heading
+    private long rateTime = 0;
+    private int rateHeading = 0;
+    private double rate = 0;
 
     public Gyro(HardwareMap map, String name) {
+        headingProbe = Instrument.probe(name, "heading");
         ready = false;
         offset = 0;
         try {
             gyro = (ModernRoboticsI2cGyro) map.gyroSensor.get(name);
+            poll = new PortPoller(gyro);
             gyro.resetDeviceConfigurationForOpMode();
             gyro.calibrate();
         } catch (Exception e) {
@@ -65,13 +81,60 @@ public class Gyro {
         }
 
         // Invert to make CW rotation increase the heading
-        return -gyro.getIntegratedZValue();
+        long start = Instrument.start();
+        int heading = -gyro.getIntegratedZValue();
+        headingProbe.stop(start);
+        return heading;
     }
 
     public int getHeading() {
         return (getHeadingRaw() + offset);
     }
 
+    /**
+     * The raw Z register is neither bias-corrected nor in degrees per second, so the rate is
+     * taken from the change in integrated heading. Call every loop while the rate matters; the
+     * first call after a gap returns 0.
+     *
+     * @return Rotation rate in degrees per second, CW positive
+     */
+    public int getRate() {
+        if (!isReady()) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        int heading = getHeadingRaw();
+        long elapsed = now - rateTime;
+        if (rateTime == 0 || elapsed > RATE_STALE) {
+            rate = 0;
+        } else if (elapsed < RATE_WINDOW) {
+            return (int) Math.round(rate);
+        } else {
+            rate = (heading - rateHeading) * 1e9 / elapsed;
+        }
+        rateTime = now;
+        rateHeading = heading;
+        return (int) Math.round(rate);
+    }
+
+    @Override
+    public void setPollRate(PollRate rate) {
+        // Calibration is commanded through the port callback, so stay active until it finishes
+        if (!isAvailable() || (PollRate.IDLE.equals(rate) && !isReady())) {
+            return;
+        }
+        poll.setRate(rate);
+    }
+
+    @Override
+    public PollRate getPollRate() {
+        if (!isAvailable()) {
+            return PollRate.IDLE;
+        }
+        return poll.getRate();
+    }
+
     public int getHeadingBasic() {
         return getHeadingBasic(false);
     }
@@ -0,0 +1,8 @@
+package org.firstinspires.ftc.teamcode.sensors;
+
+public enum PollRate {
+    // The SDK refreshes the device continuously
+    ACTIVE,
+    // The device uses no bus time and serves its last reading
+    IDLE
+}
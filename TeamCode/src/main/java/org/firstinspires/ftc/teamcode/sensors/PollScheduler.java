@@ -0,0 +1,47 @@
+package org.firstinspires.ftc.teamcode.sensors;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shares the I2C bus by idling sensors that are not needed in the current phase. An idle sensor
+ * stops its port transactions and serves its last reading until it is made active again.
+ */
+public class PollScheduler {
+    private final List<Pollable> devices = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+
+    public void add(String name, Pollable device) {
+        if (device == null || devices.contains(device)) {
+            return;
+        }
+        devices.add(device);
+        names.add(name);
+    }
+
+    public void set(Pollable device, PollRate rate) {
+        if (device == null || device.getPollRate() == rate) {
+            return;
+        }
+        device.setPollRate(rate);
+    }
+
+    public void setAll(PollRate rate) {
+        for (Pollable device : devices) {
+            set(device, rate);
+        }
+    }
+
+    public void display(Telemetry telemetry) {
+        String str = "";
+        for (int i = 0; i < devices.size(); i++) {
+            if (!str.isEmpty()) {
+                str += ", ";
+            }
+            str += names.get(i) + ":" + devices.get(i).getPollRate();
+        }
+        telemetry.addData("Polling", str);
+    }
+}
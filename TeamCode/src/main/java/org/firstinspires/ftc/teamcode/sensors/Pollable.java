@@ -0,0 +1,7 @@
+package org.firstinspires.ftc.teamcode.sensors;
+
+public interface Pollable {
+    void setPollRate(PollRate rate);
+
+    PollRate getPollRate();
+}
@@ -0,0 +1,52 @@
+package org.firstinspires.ftc.teamcode.sensors;
+
+import com.qualcomm.robotcore.hardware.I2cController;
+import com.qualcomm.robotcore.hardware.I2cControllerPortDevice;
+
+/**
+ * Starts and stops the port-ready callback that refreshes a Modern Robotics I2C device.
+ * <p>
+ * The legacy MR gyro and color drivers re-arm a read of their port from that callback on every
+ * controller cycle, whether or not anyone reads the values. While idle the callback is
+ * deregistered, so the controller schedules no transactions for the port and the device
+ * serves the last values it read. Devices on any other transport are always active.
+ */
+class PortPoller {
+    private I2cController controller = null;
+    private int port = -1;
+    private I2cController.I2cPortReadyCallback callback = null;
+    private PollRate rate = PollRate.ACTIVE;
+
+    PortPoller(Object device) {
+        if (!(device instanceof I2cControllerPortDevice)) {
+            return;
+        }
+        I2cControllerPortDevice dev = (I2cControllerPortDevice) device;
+        controller = dev.getI2cController();
+        port = dev.getPort();
+        callback = controller.getI2cPortReadyCallback(port);
+    }
+
+    boolean isSupported() {
+        return callback != null;
+    }
+
+    PollRate getRate() {
+        return rate;
+    }
+
+    void setRate(PollRate rate) {
+        if (rate == null) {
+            rate = PollRate.ACTIVE;
+        }
+        if (rate == this.rate || !isSupported()) {
+            return;
+        }
+        if (PollRate.IDLE.equals(rate)) {
+            controller.deregisterForPortReadyCallback(port);
+        } else {
+            controller.registerForI2cPortReadyCallback(callback, port);
+        }
+        this.rate = rate;
+    }
+}
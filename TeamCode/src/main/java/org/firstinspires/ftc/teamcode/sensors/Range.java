@@ -4,15 +4,24 @@ import com.qualcomm.hardware.modernrobotics.ModernRoboticsI2cRangeSensor;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.teamcode.instrument.Instrument;
+import org.firstinspires.ftc.teamcode.instrument.Probe;
 
 public class Range {
     private ModernRoboticsI2cRangeSensor range;
 
+    // Last LED state written to the device, to elide redundant writes
+    private Boolean led = null;
+    private final Probe readProbe;
+    private final Probe ledProbe;
+
     public Range(HardwareMap map, String name) {
+        readProbe = Instrument.probe(name, "read");
+        ledProbe = Instrument.probe(name, "led");
         try {
             range = map.get(ModernRoboticsI2cRangeSensor.class, name);
             range.initialize();
-            range.enableLed(true);
+            setLED(true);
         } catch (Exception e) {
             range = null;
         }
@@ -26,27 +35,43 @@ public class Range {
         if (!isAvailable()) {
             return 0;
         }
-        return (int) range.getDistance(DistanceUnit.CM);
+        long start = Instrument.start();
+        int value = (int) range.getDistance(DistanceUnit.CM);
+        readProbe.stop(start);
+        return value;
     }
 
     public int getRangeOptical() {
         if (!isAvailable()) {
             return 0;
         }
-        return (int) range.cmOptical();
+        long start = Instrument.start();
+        int value = (int) range.cmOptical();
+        readProbe.stop(start);
+        return value;
     }
 
     public int getRangeUltrasound() {
         if (!isAvailable()) {
             return 0;
         }
-        return (int) range.cmUltrasonic();
+        long start = Instrument.start();
+        int value = (int) range.cmUltrasonic();
+        readProbe.stop(start);
+        return value;
     }
 
     public void setLED(boolean state) {
         if (!isAvailable()) {
             return;
         }
+        if (led != null && led == state) {
+            ledProbe.avoided();
+            return;
+        }
+        long start = Instrument.start();
         range.enableLed(state);
+        ledProbe.stop(start);
+        led = state;
     }
 }
@@ -3,17 +3,22 @@ package org.firstinspires.ftc.teamcode.teleop;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.Servo;
 
+import org.firstinspires.ftc.teamcode.actuators.Motor;
+import org.firstinspires.ftc.teamcode.actuators.MotorConfig;
+import org.firstinspires.ftc.teamcode.actuators.ServoFTC;
+import org.firstinspires.ftc.teamcode.actuators.ServoFTCConfig;
+import org.firstinspires.ftc.teamcode.actuators.Shooter;
 import org.firstinspires.ftc.teamcode.ariel.TankOpMode;
+import org.firstinspires.ftc.teamcode.instrument.Instrument;
 
 @SuppressWarnings("unused")
 @com.qualcomm.robotcore.eventloop.opmode.TeleOp(name = "Tele-Op", group = "Teleop")
 public class OneSixTeleOp extends TankOpMode {
 
     private DcMotor collectorMotor;
-    private DcMotor shooterMotor;
+    private Shooter shooter;
     private Servo leftBooper;
     private Servo rightBooper;
-    private Servo blocker;
     private Servo flapper;
 
     private static final double BOOPER_IN = 0.0;
@@ -29,8 +34,6 @@ public class OneSixTeleOp extends TankOpMode {
     private static final int SHOOTER_INCR = 3550;
 
     private boolean isA1Pressed = false;
-    private boolean inFireRoutine = false;
-    private int shooterEncoderGoal;
     private double leftBooperPosition;
     private double rightBooperPosition;
 
@@ -43,16 +46,17 @@ public class OneSixTeleOp extends TankOpMode {
         super.init();
 
         collectorMotor = hardwareMap.dcMotor.get("collector-motor");
-        shooterMotor = hardwareMap.dcMotor.get("shooter-motor");
         leftBooper = hardwareMap.servo.get("left-booper");
         rightBooper = hardwareMap.servo.get("right-booper");
-        blocker = hardwareMap.servo.get("blocker");
+        ServoFTC blocker = new ServoFTC(hardwareMap, new ServoFTCConfig("blocker", false, BLOCKER_UP, BLOCKER_DOWN));
+        shooter = new Shooter(new Motor(hardwareMap, new MotorConfig("shooter-motor")), blocker,
+                SHOOTER_INCR, SHOOTER_SPEED);
         flapper = hardwareMap.servo.get("flapper");
         rightBooper.setDirection(Servo.Direction.REVERSE);
 
         setLeftBooperPosition(0);
         setRightBooperPosition(0);
-        blocker.setPosition(BLOCKER_DOWN);
+        blocker.max();
     }
 
     public void loop() {
@@ -69,23 +73,13 @@ public class OneSixTeleOp extends TankOpMode {
             collectorMotor.setPower(COLLECTOR_IN);
         }
 
-        //Firing
-        if(gamepad2.left_trigger > 0.5 || gamepad2.right_trigger > 0.5) {
-            inFireRoutine = true;
-            shooterEncoderGoal = shooterMotor.getCurrentPosition() + SHOOTER_INCR;
+        //Firing, as soon as the shooter is ready; hold the trigger to keep firing
+        if((gamepad2.left_trigger > 0.5 || gamepad2.right_trigger > 0.5) && shooter.getPending() == 0) {
+            shooter.fire();
         }
 
-        //Firing is in a separate boolean to make the code able to move and fire at the same time
-        if(inFireRoutine) {
-            if(shooterMotor.getCurrentPosition() < shooterEncoderGoal) {
-                blocker.setPosition(BLOCKER_UP);
-                shooterMotor.setPower(SHOOTER_SPEED);
-            } else {
-                shooterMotor.setPower(0);
-                blocker.setPosition(BLOCKER_DOWN);
-                inFireRoutine = false;
-            }
-        }
+        //The shooter runs on its own so we can move and fire at the same time; it stays put until the first shot
+        shooter.loop(time);
 
         //Boopers!
         if(gamepad1.a) {
@@ -156,9 +150,9 @@ public class OneSixTeleOp extends TankOpMode {
     public void CollectTelemetry() {
         telemetry.addData("Left Booper", leftBooper.getPosition());
         telemetry.addData("Right Booper", rightBooper.getPosition());
-        telemetry.addData("Blocker", blocker.getPosition());
         telemetry.addData("Flapper", flapper.getPosition());
-        telemetry.addData("Shooter Motor", shooterMotor.getCurrentPosition());
+        shooter.display(telemetry);
+        Instrument.display(telemetry);
         telemetry.addData("Left Wheel", frontLeftMotor.getCurrentPosition());
         telemetry.addData("Right Wheel", frontRightMotor.getCurrentPosition());
         telemetry.update();
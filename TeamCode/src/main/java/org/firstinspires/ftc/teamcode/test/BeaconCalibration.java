@@ -0,0 +1,77 @@
+package org.firstinspires.ftc.teamcode.test;
+
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+
+import org.firstinspires.ftc.teamcode.field.Field;
+import org.firstinspires.ftc.teamcode.sensors.BeaconColor;
+import org.firstinspires.ftc.teamcode.sensors.Color;
+
+@SuppressWarnings("unused")
+@com.qualcomm.robotcore.eventloop.opmode.TeleOp(name = "Beacon Calibration", group = "Test")
+public class BeaconCalibration extends OpMode {
+    private static final String SENSOR_NAME = "color";
+
+    private Color color;
+    private BeaconColor beacon;
+    private boolean saveButtonLast = false;
+
+    // Last complete classification, shown while the next one collects samples
+    private Field.AllianceColor lastColor = null;
+    private float lastConfidence = 0;
+    private int lastSamples = 0;
+
+    @Override
+    public void init() {
+        color = new Color(hardwareMap, SENSOR_NAME);
+        if (!color.isAvailable()) {
+            telemetry.log().add("ERROR: Unable to initialize color sensor: " + SENSOR_NAME);
+        }
+        beacon = new BeaconColor(color, SENSOR_NAME);
+        beacon.load(hardwareMap.appContext);
+        beacon.reset();
+    }
+
+    @Override
+    public void loop() {
+        // Hold X over a blue beacon or B over a red beacon to collect samples
+        if (gamepad1.x) {
+            beacon.calibrate(Field.AllianceColor.BLUE);
+        } else if (gamepad1.b) {
+            beacon.calibrate(Field.AllianceColor.RED);
+        }
+
+        // Y discards everything collected so far
+        if (gamepad1.y) {
+            beacon.resetCalibration();
+        }
+
+        // Save on A release
+        if (saveButtonLast && !gamepad1.a) {
+            if (beacon.save(hardwareMap.appContext)) {
+                telemetry.log().add("Saved calibration for " + SENSOR_NAME);
+            } else {
+                telemetry.log().add("ERROR: Calibration does not separate red and blue");
+            }
+        }
+        saveButtonLast = gamepad1.a;
+
+        // Live classification with the current thresholds, one sample per loop so each
+        // sample sees a fresh sensor reading
+        if (beacon.sample()) {
+            lastColor = beacon.getColor();
+            lastConfidence = beacon.getConfidence();
+            lastSamples = beacon.getSamples();
+            beacon.reset();
+        }
+
+        telemetry.addData("RGBA", "%03d %03d %03d %03d", color.red(), color.green(), color.blue(), color.alpha());
+        telemetry.addData("Normalized", "%.3f", beacon.normalized());
+        telemetry.addData("Red", "%.3f (%d samples)", beacon.getCalibration(Field.AllianceColor.RED),
+                beacon.getCalibrationSamples(Field.AllianceColor.RED));
+        telemetry.addData("Blue", "%.3f (%d samples)", beacon.getCalibration(Field.AllianceColor.BLUE),
+                beacon.getCalibrationSamples(Field.AllianceColor.BLUE));
+        telemetry.addData("Beacon", lastColor + " (" + (int) (lastConfidence * 100) + "%, " + lastSamples + " samples)");
+        telemetry.addData(">", "X: Blue B: Red Y: Reset A: Save");
+        telemetry.update();
+    }
+}
@@ -0,0 +1,61 @@
+package org.firstinspires.ftc.teamcode.test;
+
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+
+import org.firstinspires.ftc.teamcode.config.WheelMotorConfigs;
+import org.firstinspires.ftc.teamcode.navigation.LineFollower;
+import org.firstinspires.ftc.teamcode.sensors.Color;
+import org.firstinspires.ftc.teamcode.wheels.TankDrive;
+
+@SuppressWarnings("unused")
+@com.qualcomm.robotcore.eventloop.opmode.TeleOp(name = "Line Follow Test", group = "Test")
+public class LineFollowTest extends OpMode {
+    // A side-by-side pair straddling the line, not RedBeaconAuto's front/back "color sensor1/2"
+    private static final String LEFT_SENSOR = "line left";
+    private static final String RIGHT_SENSOR = "line right";
+
+    private TankDrive tank;
+    private LineFollower follower;
+
+    @Override
+    public void init() {
+        // Drive motors
+        tank = new WheelMotorConfigs().init(hardwareMap, telemetry);
+        tank.stop();
+
+        // Line sensors
+        Color left = new Color(hardwareMap, LEFT_SENSOR);
+        if (!left.isAvailable()) {
+            telemetry.log().add("ERROR: Unable to initalize left line sensor: " + LEFT_SENSOR);
+        }
+        Color right = new Color(hardwareMap, RIGHT_SENSOR);
+        if (!right.isAvailable()) {
+            telemetry.log().add("ERROR: Unable to initalize right line sensor: " + RIGHT_SENSOR);
+        }
+        follower = new LineFollower(tank, left, right);
+    }
+
+    @Override
+    public void start() {
+        // Allow driver control
+        tank.setTeleop(true);
+    }
+
+    @Override
+    public void loop() {
+        // A to follow, B to return to driver control
+        if (gamepad1.a && !follower.isEnabled()) {
+            follower.start();
+        } else if (gamepad1.b && follower.isEnabled()) {
+            follower.stop();
+            tank.setTeleop(true);
+        }
+
+        follower.loop();
+        tank.loop(gamepad1);
+
+        telemetry.addData("Mode", follower.isEnabled() ? "Follow" : "Teleop");
+        follower.display(telemetry);
+        telemetry.update();
+    }
+}
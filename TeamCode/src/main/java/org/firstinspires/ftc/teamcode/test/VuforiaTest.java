@@ -3,11 +3,10 @@ package org.firstinspires.ftc.teamcode.test;
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 
 import org.firstinspires.ftc.teamcode.driveto.DriveTo;
-import org.firstinspires.ftc.teamcode.driveto.DriveToComp;
 import org.firstinspires.ftc.teamcode.driveto.DriveToListener;
 import org.firstinspires.ftc.teamcode.driveto.DriveToParams;
+import org.firstinspires.ftc.teamcode.navigation.Navigation;
 import org.firstinspires.ftc.teamcode.sensors.Gyro;
-import org.firstinspires.ftc.teamcode.wheels.MotorSide;
 import org.firstinspires.ftc.teamcode.wheels.TankDrive;
 import org.firstinspires.ftc.teamcode.vuforia.VuforiaFTC;
 import org.firstinspires.ftc.teamcode.config.VuforiaConfigs;
@@ -18,42 +17,28 @@ import org.firstinspires.ftc.teamcode.config.WheelMotorConfigs;
 public class VuforiaTest extends OpMode implements DriveToListener {
 
     // Driving constants
-    private static final float GYRO_MIN_UPDATE_INTERVAL = 1.0f;
     private static final float ENCODER_PER_MM = 3.2f;
-    private static final float SPEED_TURN = 0.1f;
-    private static final float SPEED_TURN_FAST = 0.5f;
-    private static final int SPEED_TURN_THRESHOLD = 60;
     private static final float SPEED_DRIVE = 1.0f;
-    private static final int TIMEOUT_DEFAULT = DriveTo.TIMEOUT_DEFAULT;
-    private static final int TIMEOUT_DEGREE = 100;
-    private static final int OVERRUN_GYRO = 2;
     private static final int OVERRUN_ENCODER = 25;
 
-    // Numeric constants
-    private final static int FULL_CIRCLE = 360;
-
     // Dynamic things we need to remember
     private VuforiaFTC vuforia;
+    private Navigation nav;
     private TankDrive tank;
     private Gyro gyro;
     private DriveTo drive;
-    private double headingSyncExpires;
     private int lastBearing = 0;
     private int lastDistance = 0;
     private String lastTarget = "<None>";
 
     // Sensor reference types for our DriveTo callbacks
     enum SENSOR_TYPE {
-        GYRO, ENCODER
+        ENCODER
     }
 
     @Override
     public void init() {
 
-        // Placate drivers; sometimes VuforiaFTC is slow to init
-        telemetry.addData(">", "Initializing...");
-        telemetry.update();
-
         // Sensors
         gyro = new Gyro(hardwareMap, "gyro");
         if (!gyro.isAvailable()) {
@@ -67,15 +52,21 @@ public class VuforiaTest extends OpMode implements DriveToListener {
         // Vuforia
         vuforia = new VuforiaFTC(VuforiaConfigs.AssetName, VuforiaConfigs.TargetCount,
                 VuforiaConfigs.Field(), VuforiaConfigs.Bot());
-        vuforia.init();
-
-        // Wait for the game to begin
-        telemetry.addData(">", "Ready for game start");
-        telemetry.update();
+        vuforia.initAsync();
+        nav = new Navigation(this, tank, vuforia, gyro);
     }
 
     @Override
     public void init_loop() {
+        // VuforiaFTC loads in the background; start() will activate it whenever it is ready
+        if (vuforia.isFailed()) {
+            telemetry.addData(">", "Vuforia failed to initialize");
+        } else if (!vuforia.isReady()) {
+            telemetry.addData(">", "Initializing Vuforia...");
+        } else {
+            telemetry.addData(">", "Ready for game start");
+        }
+        telemetry.update();
     }
 
     @Override
@@ -123,16 +114,10 @@ public class VuforiaTest extends OpMode implements DriveToListener {
             return;
         }
 
-        // Drive
-        tank.loop(gamepad1);
-
-        // Update our location and target info
-        vuforia.track();
-
-        // Update the gyro offset if we have a fix
-        if (!vuforia.isStale() && headingSyncExpires < time) {
-            headingSyncExpires = time + GYRO_MIN_UPDATE_INTERVAL;
-            gyro.setHeading(vuforia.getHeading());
+        // Drive, update our location and target info, sync the gyro and step any turn
+        nav.loop(gamepad1);
+        if (nav.isTurning()) {
+            return;
         }
 
         // Collect data about the first visible target
@@ -141,12 +126,11 @@ public class VuforiaTest extends OpMode implements DriveToListener {
         int bearing = 0;
         int distance = 0;
         if (!vuforia.isStale()) {
-            for (String t : vuforia.getVisible().keySet()) {
-                if (vuforia.getVisible(t)) {
-                    target = t;
-                    int index = vuforia.getTargetIndex(t);
-                    bearing = vuforia.bearing(index);
-                    distance = vuforia.distance(index);
+            for (int i = 0; i < vuforia.getTargetCount(); i++) {
+                if (vuforia.getVisible(i)) {
+                    target = vuforia.getTargetName(i);
+                    bearing = vuforia.bearing(i);
+                    distance = vuforia.distance(i);
                     valid = true;
                     break;
                 }
@@ -167,9 +151,9 @@ public class VuforiaTest extends OpMode implements DriveToListener {
         // Turn 90° left/right
         if (gamepad1.right_bumper) {
             if (gamepad1.x) {
-                turnAngle(-90);
+                nav.turnAngle(-90);
             } else if (gamepad1.b) {
-                turnAngle(90);
+                nav.turnAngle(90);
             }
             return;
         }
@@ -177,13 +161,13 @@ public class VuforiaTest extends OpMode implements DriveToListener {
         // Turn to face cardinal directions (or our best guess if we've never seen a target)
         if (gamepad1.left_bumper) {
             if (gamepad1.y) {
-                turnBearing(0);
+                nav.turnHeading(0);
             } else if (gamepad1.b) {
-                turnBearing(90);
+                nav.turnHeading(90);
             } else if (gamepad1.a) {
-                turnBearing(180);
+                nav.turnHeading(180);
             } else if (gamepad1.x) {
-                turnBearing(270);
+                nav.turnHeading(270);
             }
             return;
         }
@@ -197,7 +181,7 @@ public class VuforiaTest extends OpMode implements DriveToListener {
 
         // Turn to face the first visible target
         if (gamepad1.y) {
-            turnBearing(bearing);
+            nav.turnHeading(bearing);
             return;
         }
 
@@ -208,6 +192,11 @@ public class VuforiaTest extends OpMode implements DriveToListener {
         }
     }
 
+    @Override
+    public void stop() {
+        vuforia.stop();
+    }
+
     @Override
     public void driveToStop(DriveToParams param) {
         tank.stop();
@@ -217,22 +206,6 @@ public class VuforiaTest extends OpMode implements DriveToListener {
     public void driveToRun(DriveToParams param) {
         // Remember that "forward" is "negative" per the joystick conventions
         switch ((SENSOR_TYPE) param.reference) {
-            case GYRO:
-                // Turn faster if we're outside the threshold
-                float speed = SPEED_TURN;
-                if (Math.abs(param.error1) > SPEED_TURN_THRESHOLD) {
-                    speed = SPEED_TURN_FAST;
-                }
-
-                // Turning clockwise increases heading
-                if (param.comparator.equals(DriveToComp.GREATER)) {
-                    tank.setSpeed(-speed, MotorSide.LEFT);
-                    tank.setSpeed(speed, MotorSide.RIGHT);
-                } else {
-                    tank.setSpeed(speed, MotorSide.LEFT);
-                    tank.setSpeed(-speed, MotorSide.RIGHT);
-                }
-                break;
             case ENCODER:
                 // Always drive forward
                 tank.setSpeed(-SPEED_DRIVE);
@@ -244,9 +217,6 @@ public class VuforiaTest extends OpMode implements DriveToListener {
     public double driveToSensor(DriveToParams param) {
         double value = 0;
         switch ((SENSOR_TYPE) param.reference) {
-            case GYRO:
-                value = gyro.getHeading();
-                break;
             case ENCODER:
                 value = tank.getEncoder();
                 break;
@@ -254,37 +224,6 @@ public class VuforiaTest extends OpMode implements DriveToListener {
         return value;
     }
 
-    private void turnAngle(int angle) {
-        tank.setTeleop(false);
-        DriveToParams param = new DriveToParams(this, SENSOR_TYPE.GYRO);
-        param.timeout = (Math.abs(angle) * TIMEOUT_DEGREE) + TIMEOUT_DEFAULT;
-
-        // Normalized heading and bearing
-        int target = gyro.getHeading() + angle;
-
-        // Turn CCW for negative angles
-        if (angle > 0) {
-            param.greaterThan(target - OVERRUN_GYRO);
-        } else {
-            param.lessThan(target + OVERRUN_GYRO);
-        }
-        drive = new DriveTo(new DriveToParams[]{param});
-    }
-
-    private void turnBearing(int bearing) {
-        // Normalized heading and turns in each direction
-        int heading = gyro.getHeadingBasic();
-        int cw = (bearing - heading + FULL_CIRCLE) % FULL_CIRCLE;
-        int ccw = (heading - bearing + FULL_CIRCLE) % FULL_CIRCLE;
-
-        // Turn the short way
-        if (Math.abs(cw) <= Math.abs(ccw)) {
-            turnAngle(cw);
-        } else {
-            turnAngle(-ccw);
-        }
-    }
-
     private void driveForward(int distance) {
         tank.setTeleop(false);
         DriveToParams param = new DriveToParams(this, SENSOR_TYPE.ENCODER);
@@ -0,0 +1,20 @@
+package org.firstinspires.ftc.teamcode.vuforia;
+
+import org.firstinspires.ftc.robotcore.internal.VuforiaLocalizerImpl;
+
+/**
+ * The SDK localizer, as ClassFactory builds it, with its teardown exposed
+ * <p>
+ * The SDK closes a localizer when the OpMode that created it stops. One finished on a
+ * background thread after that stop misses the notification and must be closed by hand.
+ */
+class ClosableLocalizer extends VuforiaLocalizerImpl {
+    ClosableLocalizer(Parameters parameters) {
+        super(parameters);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+    }
+}
@@ -0,0 +1,49 @@
+package org.firstinspires.ftc.teamcode.vuforia;
+
+import org.firstinspires.ftc.robotcore.external.matrices.OpenGLMatrix;
+
+/**
+ * VuforiaSource backed by the Vuforia engine's trackable listeners
+ */
+class LiveSource implements VuforiaSource {
+    private final TimestampedListener[] listeners;
+
+    LiveSource(TimestampedListener[] listeners) {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public void update() {
+        // Listeners are updated by Vuforia's frame thread
+    }
+
+    @Override
+    public int getTargetCount() {
+        return listeners.length;
+    }
+
+    @Override
+    public boolean isVisible(int index) {
+        return listeners[index].isVisible();
+    }
+
+    @Override
+    public OpenGLMatrix getPose(int index) {
+        return listeners[index].getPose();
+    }
+
+    @Override
+    public OpenGLMatrix getUpdatedRobotLocation(int index) {
+        return listeners[index].getUpdatedRobotLocation();
+    }
+
+    @Override
+    public long getCaptured(int index) {
+        return listeners[index].getCaptured();
+    }
+
+    @Override
+    public void close() {
+        // VuforiaFTC deactivates the engine's trackables itself
+    }
+}
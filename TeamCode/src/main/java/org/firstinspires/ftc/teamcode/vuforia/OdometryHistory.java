@@ -0,0 +1,71 @@
+package org.firstinspires.ftc.teamcode.vuforia;
+
+/**
+ * Fixed-size ring buffer of timestamped odometry samples
+ */
+public class OdometryHistory {
+    private final long[] time;
+    private final int[] heading;
+    private final int[] distance;
+    private int next = 0;
+    private int size = 0;
+
+    public OdometryHistory(int capacity) {
+        time = new long[capacity];
+        heading = new int[capacity];
+        distance = new int[capacity];
+    }
+
+    public void clear() {
+        next = 0;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void record(long now, int heading, int distance) {
+        this.time[next] = now;
+        this.heading[next] = heading;
+        this.distance[next] = distance;
+        next = (next + 1) % time.length;
+        if (size < time.length) {
+            size++;
+        }
+    }
+
+    public int headingAt(long when) {
+        return heading[indexAt(when)];
+    }
+
+    public int distanceAt(long when) {
+        return distance[indexAt(when)];
+    }
+
+    public int latestHeading() {
+        return heading[latest()];
+    }
+
+    public int latestDistance() {
+        return distance[latest()];
+    }
+
+    private int latest() {
+        return (next - 1 + time.length) % time.length;
+    }
+
+    // Newest sample no newer than when, or the oldest sample if all are newer
+    private int indexAt(long when) {
+        int index = latest();
+        for (int i = 0; i < size; i++) {
+            if (time[index] <= when) {
+                return index;
+            }
+            if (i < size - 1) {
+                index = (index - 1 + time.length) % time.length;
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,13 @@
+package org.firstinspires.ftc.teamcode.vuforia;
+
+public interface OdometryListener {
+    /**
+     * @return Current heading in field degrees (0° north, CW positive), unnormalized
+     */
+    int odometryHeading();
+
+    /**
+     * @return Cumulative forward travel in millimeters
+     */
+    int odometryDistance();
+}
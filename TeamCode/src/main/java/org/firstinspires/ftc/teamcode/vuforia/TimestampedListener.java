@@ -0,0 +1,33 @@
+package org.firstinspires.ftc.teamcode.vuforia;
+
+import com.vuforia.TrackableResult;
+
+import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackable;
+import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackableDefaultListener;
+
+/**
+ * Default listener that also records when Vuforia delivered each tracked frame
+ * <p>
+ * onTracked() runs on Vuforia's frame thread as soon as a frame is processed, which is much
+ * closer to capture time than the moment our loop happens to poll.
+ */
+public class TimestampedListener extends VuforiaTrackableDefaultListener {
+    private volatile long captured = 0;
+
+    public TimestampedListener(VuforiaTrackable trackable) {
+        super(trackable);
+    }
+
+    @Override
+    public synchronized void onTracked(TrackableResult trackableResult) {
+        captured = System.currentTimeMillis();
+        super.onTracked(trackableResult);
+    }
+
+    /**
+     * @return System.currentTimeMillis() at the last tracked frame, or 0 if never tracked
+     */
+    public long getCaptured() {
+        return captured;
+    }
+}
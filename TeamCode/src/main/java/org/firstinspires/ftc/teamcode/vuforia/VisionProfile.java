@@ -0,0 +1,39 @@
+package org.firstinspires.ftc.teamcode.vuforia;
+
+/**
+ * Vision CPU budget for VuforiaFTC
+ * <p>
+ * Vuforia shares the phone with the control loop; these settings trade tracking quality for
+ * loop time. See VuforiaConfigs for the presets we use.
+ */
+public class VisionProfile {
+    // Poll as fast as the tracking thread or OpMode loop allows
+    public static final int FPS_UNLIMITED = 0;
+
+    // Skip the camera monitor view and its per-frame rendering
+    public final boolean headless;
+    // Upper bound on how often we poll the trackables; FPS_UNLIMITED for no cap
+    public final int maxFps;
+    // HINT_MAX_SIMULTANEOUS_IMAGE_TARGETS; 0 to use the number of configured targets
+    public final int maxSimultaneous;
+
+    public VisionProfile(boolean headless, int maxFps, int maxSimultaneous) {
+        if (maxFps < 0 || maxSimultaneous < 0) {
+            throw new IllegalArgumentException("VisionProfile limits must be non-negative: " +
+                    maxFps + ", " + maxSimultaneous);
+        }
+        this.headless = headless;
+        this.maxFps = maxFps;
+        this.maxSimultaneous = maxSimultaneous;
+    }
+
+    /**
+     * @return Minimum time between polls in milliseconds, or 0 when uncapped
+     */
+    public int pollPeriod() {
+        if (maxFps == FPS_UNLIMITED) {
+            return 0;
+        }
+        return 1000 / maxFps;
+    }
+}
@@ -36,7 +36,6 @@ import com.qualcomm.ftcrobotcontroller.R;
 import com.qualcomm.robotcore.util.RobotLog;
 import com.vuforia.HINT;
 
-import org.firstinspires.ftc.robotcore.external.ClassFactory;
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 import org.firstinspires.ftc.robotcore.external.matrices.OpenGLMatrix;
 import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
@@ -47,10 +46,14 @@ import org.firstinspires.ftc.robotcore.external.navigation.VuforiaLocalizer;
 import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackable;
 import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackableDefaultListener;
 import org.firstinspires.ftc.robotcore.external.navigation.VuforiaTrackables;
+import org.firstinspires.ftc.teamcode.field.Geometry;
+import org.firstinspires.ftc.teamcode.instrument.Instrument;
+import org.firstinspires.ftc.teamcode.instrument.Probe;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class VuforiaFTC {
     /**
@@ -65,6 +68,37 @@ public class VuforiaFTC {
     public static final AxesReference AXES_REFERENCE = AxesReference.EXTRINSIC;
     public static final AngleUnit ANGLE_UNIT = AngleUnit.DEGREES;
 
+    // Background tracking poll interval (ms); shorter than the camera frame period
+    private static final int TRACK_INTERVAL = 10;
+
+    // Time stop() waits for background initialization (ms); a later finish cleans up after itself
+    private static final int INIT_JOIN_TIMEOUT = 1000;
+
+    // Odometry samples kept to look up the pose at a fix's capture time; covers ~1s of frame
+    // latency at typical loop rates
+    private static final int ODOMETRY_HISTORY = 64;
+
+    // Pose fusion weighting: inverse-square distance scaled to this range (mm), and a floor
+    // on the cosine of the viewing angle so oblique targets still contribute a little
+    private static final float FUSION_RANGE = 1000.0f;
+    private static final float FUSION_MIN_COS = 0.1f;
+    private static final float FUSION_MIN_WEIGHT = 1e-6f;
+
+    // Fix quality: each factor ramps from 1.0 at *_GOOD to 0.0 at *_POOR. Fixes scoring below
+    // QUALITY_MIN are rejected, unless QUALITY_MAX_REJECTS in a row suggest our reference is wrong.
+    private static final float QUALITY_MIN = 0.25f;
+    private static final int QUALITY_MAX_REJECTS = 5;
+    private static final float RANGE_GOOD = 1500;
+    private static final float RANGE_POOR = 4000;
+    private static final float OBLIQUITY_GOOD = 45;
+    private static final float OBLIQUITY_POOR = 80;
+    private static final float JUMP_GOOD = 100;
+    private static final float JUMP_POOR = 400;
+    private static final float TURN_GOOD = 10;
+    private static final float TURN_POOR = 30;
+    // Top robot speed (mm/ms); bounds the plausible jump when there is no odometry
+    private static final float MAX_SPEED = 1.5f;
+
     // Cartesian heading constants
     private static final int FULL_CIRCLE = 360;
     private static final int HEADING_OFFSET = -FULL_CIRCLE / 4;
@@ -75,17 +109,83 @@ public class VuforiaFTC {
     private final VuforiaTarget[] CONFIG_TARGETS;
     private final VuforiaTarget CONFIG_PHONE;
 
+    // Vision CPU budget
+    private VisionProfile profile = new VisionProfile(false, VisionProfile.FPS_UNLIMITED, 0);
+    private int maxSimultaneous = 0;
+    private final boolean[] targetActive;
+    private long pollNext = 0;
+    private final Probe pollProbe = Instrument.probe("Vuforia", "poll");
+    private final Probe trackProbe = Instrument.probe("Vuforia", "track");
+
     // Dynamic things we need to remember
     private int trackingTimeout = 100;
     private VuforiaTrackables targetsRaw = null;
     private final List<VuforiaTrackable> targets = new ArrayList<>();
+    private VuforiaSource source = null;
+    private VuforiaRecorder recorder = null;
+
+    // Polling results and scratch space, owned by whichever thread calls poll()
+    private long pollTimestamp = 0;
+    private final float[] pollLocation = new float[3];
+    private final float[] pollOrientation = new float[3];
+    private final boolean[] pollVisible;
+    private final float[] pollAngle;
+    private float pollRange = 0;
+    private float pollObliquity = 0;
+    private final float[] angles = new float[3];
+    private final float[] anglesAlt = new float[3];
+    private final float[] fusedLocation = new float[3];
+
+    // Background initialization
+    private Thread initializer = null;
+    private volatile boolean ready = false;
+    private volatile boolean failed = false;
+    private volatile boolean cancelled = false;
+    private boolean startPending = false;
+
+    // Background tracking
+    private boolean threaded = false;
+    private Thread tracker = null;
+    private final AtomicReference<VuforiaPose> snapshot = new AtomicReference<>(null);
+    private VuforiaPose applied = null;
 
-    // The actual data we care about
+    // Latency compensation
+    private OdometryListener odometry = null;
+    private final OdometryHistory history = new OdometryHistory(ODOMETRY_HISTORY);
+    // Odometry at the capture time of the accepted fix, snapshotted when it is accepted
+    private boolean fixSnapped = false;
+    private int fixHeading = 0;
+    private int fixDistance = 0;
+    private double extrapX = 0;
+    private double extrapY = 0;
+    private double extrapHeading = 0;
+
+    // Latest fix, before quality gating
+    private long fixTimestamp = 0;
+    private long gatedTimestamp = 0;
+    private final float[] fixLocation = new float[3];
+    private final float[] fixOrientation = new float[3];
+    private float fixRange = 0;
+    private float fixObliquity = 0;
+
+    // Quality of the accepted track
+    private float quality = 0;
+    private int rejected = 0;
+    private int rejectStreak = 0;
+
+    // The actual data we care about, indexed by CONFIG_TARGETS index
     private long timestamp = 0;
     private final int[] location = new int[3];
     private final int[] orientation = new int[3];
-    private final HashMap<String, Boolean> targetVisible = new HashMap<>();
-    private final HashMap<String, Integer> targetAngle = new HashMap<>();
+    private final boolean[] targetVisible;
+    private final int[] targetAngle;
+
+    // Full-precision copies of the above; the int arrays are truncated from these
+    private final float[] locationPrecise = new float[3];
+    private final float[] orientationPrecise = new float[3];
+    private final float[] targetAnglePrecise;
+
+    // Name lookup, for setup and non-critical paths only
     private final HashMap<String, Integer> targetIndex = new HashMap<>();
 
     public VuforiaFTC(String targetAsset, int numTargets, VuforiaTarget[] targetConfig, VuforiaTarget phoneConfig) {
@@ -93,21 +193,86 @@ public class VuforiaFTC {
         CONFIG_PHONE = phoneConfig;
         CONFIG_ASSET = targetAsset;
         CONFIG_TARGETS_NUM = numTargets;
+        targetVisible = new boolean[numTargets];
+        targetAngle = new int[numTargets];
+        targetAnglePrecise = new float[numTargets];
+        pollVisible = new boolean[numTargets];
+        pollAngle = new float[numTargets];
+        targetActive = new boolean[numTargets];
+        for (int i = 0; i < numTargets; i++) {
+            targetActive[i] = true;
+        }
+    }
+
+    /**
+     * @param profile Vision CPU budget. Must be set before init(); the frame-rate cap and
+     *                simultaneous target hint may be changed later.
+     */
+    public void setProfile(VisionProfile profile) {
+        this.profile = profile;
+        maxSimultaneous = profile.maxSimultaneous;
+    }
+
+    public VisionProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @param max HINT_MAX_SIMULTANEOUS_IMAGE_TARGETS; fewer targets is less work per frame.
+     *            0 to use the number of configured targets. May be changed between phases.
+     */
+    public void setMaxSimultaneous(int max) {
+        maxSimultaneous = max;
+        if (ready) {
+            applyMaxSimultaneous();
+        }
+    }
+
+    /**
+     * @param index  CONFIG_TARGETS index of the target of interest.
+     * @param active When false the target is skipped while polling and reported as not visible
+     */
+    public void setActive(int index, boolean active) {
+        targetActive[index] = active;
+    }
+
+    public boolean isActive(int index) {
+        return targetActive[index];
     }
 
     public void init() {
+        // Replay needs no engine
+        if (source != null) {
+            markReady();
+            return;
+        }
+
         // Init Vuforia
-        VuforiaLocalizer.Parameters parameters = new VuforiaLocalizer.Parameters(R.id.cameraMonitorViewId);
+        VuforiaLocalizer.Parameters parameters;
+        if (profile.headless) {
+            parameters = new VuforiaLocalizer.Parameters();
+        } else {
+            parameters = new VuforiaLocalizer.Parameters(R.id.cameraMonitorViewId);
+        }
         parameters.vuforiaLicenseKey = VUFORIA_KEY;
         parameters.cameraDirection = CAMERA_DIRECTION;
-        VuforiaLocalizer vuforia = ClassFactory.createVuforiaLocalizer(parameters);
+        ClosableLocalizer vuforia = new ClosableLocalizer(parameters);
+        if (cancelled) {
+            vuforia.close();
+            return;
+        }
 
         /**
          * Pre-processed target images from the Vuforia target manager:
          * https://developer.vuforia.com/target-manager.
          */
-        targetsRaw = vuforia.loadTrackablesFromAsset(CONFIG_ASSET);
-        com.vuforia.Vuforia.setHint(HINT.HINT_MAX_SIMULTANEOUS_IMAGE_TARGETS, CONFIG_TARGETS_NUM);
+        VuforiaTrackables loaded = vuforia.loadTrackablesFromAsset(CONFIG_ASSET);
+        if (cancelled) {
+            vuforia.close();
+            return;
+        }
+        targetsRaw = loaded;
+        applyMaxSimultaneous();
         targets.addAll(targetsRaw);
 
         // Configure target names, locations, rotations and hashmaps
@@ -120,22 +285,307 @@ public class VuforiaFTC {
         for (VuforiaTrackable trackable : targets) {
             ((VuforiaTrackableDefaultListener) trackable.getListener()).setPhoneInformation(phoneLocation, parameters.cameraDirection);
         }
+
+        // Cache the listeners so track() need not cast or iterate a List
+        int num = Math.min(CONFIG_TARGETS_NUM, targets.size());
+        TimestampedListener[] listeners = new TimestampedListener[num];
+        for (int i = 0; i < num; i++) {
+            listeners[i] = (TimestampedListener) targets.get(i).getListener();
+        }
+        source = new LiveSource(listeners);
+        if (!markReady()) {
+            vuforia.close();
+        }
+    }
+
+    // Begin tracking now if start() was called while we were busy. False if stop() got here
+    // first, in which case the caller owns whatever it built.
+    private synchronized boolean markReady() {
+        if (cancelled) {
+            return false;
+        }
+        ready = true;
+        if (startPending) {
+            activate();
+        }
+        return true;
+    }
+
+    /**
+     * @param source Replacement for the live Vuforia engine, typically a {@link VuforiaReplay}.
+     *               Must be set before init(), which then skips engine startup.
+     */
+    public void setSource(VuforiaSource source) {
+        if (source.getTargetCount() != CONFIG_TARGETS_NUM) {
+            throw new IllegalArgumentException("VuforiaFTC source target count mismatch: " +
+                    source.getTargetCount() + " != " + CONFIG_TARGETS_NUM);
+        }
+        this.source = source;
+    }
+
+    /**
+     * @param recorder Log every poll to this recorder until {@link #stop()}. It is closed once
+     *                 polling has ended, by the tracking thread if there is one. Set before
+     *                 start(); may be null.
+     */
+    public void setRecorder(VuforiaRecorder recorder) {
+        if (recorder != null && recorder.getTargetCount() != CONFIG_TARGETS_NUM) {
+            throw new IllegalArgumentException("VuforiaFTC recorder target count mismatch: " +
+                    recorder.getTargetCount() + " != " + CONFIG_TARGETS_NUM);
+        }
+        this.recorder = recorder;
+    }
+
+    public VuforiaRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Run {@link #init()} on a background thread so the OpMode's init() returns immediately.
+     * Poll {@link #isReady()} from init_loop(). {@link #start()} may be called at any time;
+     * tracking begins as soon as initialization completes.
+     */
+    public void initAsync() {
+        if (initializer != null || ready) {
+            return;
+        }
+        initializer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    init();
+                } catch (RuntimeException e) {
+                    failed = true;
+                    RobotLog.e("VuforiaFTC initialization failed: " + e.getMessage());
+                }
+            }
+        }, "VuforiaFTC-init");
+        initializer.start();
+    }
+
+    /**
+     * @return True once {@link #init()} has completed, synchronously or otherwise
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return True if background initialization via {@link #initAsync()} threw
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * @param enable When true, {@link #start()} launches a background thread that polls Vuforia
+     *               and {@link #track()} only applies the latest published snapshot. Must be set
+     *               before start().
+     */
+    public void setThreaded(boolean enable) {
+        threaded = enable;
+    }
+
+    public boolean isThreaded() {
+        return threaded;
+    }
+
+    /**
+     * Activate tracking, or defer activation until background initialization completes
+     */
+    public synchronized void start() {
+        if (!ready) {
+            startPending = true;
+            return;
+        }
+        activate();
     }
 
-    public void start() {
-        targetsRaw.activate();
+    // Caller must hold our monitor
+    private void activate() {
+        startPending = false;
+        if (targetsRaw != null) {
+            targetsRaw.activate();
+        }
+        if (threaded && tracker == null) {
+            tracker = new Thread(new Tracker(), "VuforiaFTC");
+            tracker.start();
+        }
     }
 
+    public void stop() {
+        Thread t;
+        Thread init;
+        synchronized (this) {
+            // Initialization that has not reached markReady() will never activate
+            cancelled = true;
+            startPending = false;
+            t = tracker;
+            tracker = null;
+            init = initializer;
+        }
+        if (init != null) {
+            try {
+                init.join(INIT_JOIN_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (t != null) {
+            // The tracker closes the recorder and source as it exits, even if we stop waiting
+            t.interrupt();
+            try {
+                t.join(TRACK_INTERVAL * 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            // Polling happens on the caller's thread, which is this one
+            closeSources();
+        }
+        synchronized (this) {
+            if (ready && targetsRaw != null) {
+                targetsRaw.deactivate();
+            }
+        }
+    }
+
+    // Close the recorder and source; only the thread that polls may call this
+    private void closeSources() {
+        if (recorder != null) {
+            recorder.close();
+        }
+        if (source != null) {
+            source.close();
+        }
+    }
+
+    /**
+     * Update the location, orientation and per-target state
+     * <p>
+     * Does nothing until {@link #isReady()}. In threaded mode this copies the latest snapshot,
+     * if any, in constant time. Otherwise it polls every trackable synchronously.
+     */
     public void track() {
-        for (VuforiaTrackable trackable : targets) {
+        if (!ready) {
+            return;
+        }
+        long start = Instrument.start();
+        if (threaded) {
+            VuforiaPose pose = snapshot.get();
+            if (pose != null && pose != applied) {
+                pose.copyTo(fixLocation, fixOrientation, targetVisible, targetAnglePrecise);
+                fixTimestamp = pose.timestamp;
+                fixRange = pose.getRange();
+                fixObliquity = pose.getObliquity();
+                applied = pose;
+            }
+        } else {
+            poll();
+            fixTimestamp = pollTimestamp;
+            fixRange = pollRange;
+            fixObliquity = pollObliquity;
+            System.arraycopy(pollLocation, 0, fixLocation, 0, fixLocation.length);
+            System.arraycopy(pollOrientation, 0, fixOrientation, 0, fixOrientation.length);
+            System.arraycopy(pollVisible, 0, targetVisible, 0, targetVisible.length);
+            System.arraycopy(pollAngle, 0, targetAnglePrecise, 0, targetAnglePrecise.length);
+        }
+
+        // Judge each new fix once
+        if (fixTimestamp != gatedTimestamp) {
+            gatedTimestamp = fixTimestamp;
+            gate();
+        }
+        trackProbe.stop(start);
+
+        // Legacy int views
+        for (int i = 0; i < location.length; i++) {
+            location[i] = (int) locationPrecise[i];
+            orientation[i] = (int) orientationPrecise[i];
+        }
+        for (int i = 0; i < targetAngle.length; i++) {
+            targetAngle[i] = (int) targetAnglePrecise[i];
+        }
+        updateOdometry();
+    }
+
+    /**
+     * @param odometry Source of heading and travel used to carry the last vision fix forward
+     *                 to the present. Sampled on every {@link #track()} or
+     *                 {@link #updateOdometry()} call. May be null.
+     */
+    public void setOdometry(OdometryListener odometry) {
+        this.odometry = odometry;
+        history.clear();
+        fixSnapped = false;
+        fixHeading = 0;
+        fixDistance = 0;
+        extrapX = 0;
+        extrapY = 0;
+        extrapHeading = 0;
+    }
+
+    /**
+     * @return The most recent snapshot published by the background tracking thread, or null
+     * when not in threaded mode or before the first update
+     */
+    public VuforiaPose getSnapshot() {
+        return snapshot.get();
+    }
+
+    // Poll the source into the poll* fields; returns true if anything changed
+    private boolean poll() {
+        // Honor the frame-rate cap
+        long now = System.currentTimeMillis();
+        if (now < pollNext) {
+            return false;
+        }
+        pollNext = now + profile.pollPeriod();
+        long start = Instrument.start();
+        source.update();
+        if (recorder != null) {
+            recorder.frame(now);
+        }
+
+        boolean changed = false;
+        float fusedWeight = 0;
+        float bestWeight = 0;
+        long newest = 0;
+        for (int i = 0; i < fusedLocation.length; i++) {
+            fusedLocation[i] = 0;
+        }
+        for (int t = 0; t < source.getTargetCount(); t++) {
+            // Inactive targets cost nothing and are never visible
+            if (!targetActive[t]) {
+                if (pollVisible[t]) {
+                    pollVisible[t] = false;
+                    changed = true;
+                }
+                if (recorder != null) {
+                    recorder.target(false, null, null, 0);
+                }
+                continue;
+            }
+
             // Per-target visibility (somewhat imaginary but still useful)
-            targetVisible.put(trackable.getName(), ((VuforiaTrackableDefaultListener) trackable.getListener()).isVisible());
+            boolean visible = source.isVisible(t);
+            if (visible != pollVisible[t]) {
+                pollVisible[t] = visible;
+                changed = true;
+            }
 
             // Angle to target, if available
-            OpenGLMatrix newPose = ((VuforiaTrackableDefaultListener) trackable.getListener()).getPose();
+            OpenGLMatrix newPose = source.getPose(t);
+            float weight = 0;
+            float range = RANGE_GOOD;
+            float obliquity = 0;
             if (newPose != null) {
-                Orientation poseOrientation = Orientation.getOrientation(newPose, AXES_REFERENCE, AxesOrder.XYZ, ANGLE_UNIT);
-                targetAngle.put(trackable.getName(), (int) poseOrientation.secondAngle);
+                orientationXYZ(newPose, angles);
+                pollAngle[t] = angles[1];
+                range = poseRange(newPose);
+                obliquity = angles[1];
+                weight = fusionWeight(range, obliquity);
+                changed = true;
             }
 
             /**
@@ -148,38 +598,208 @@ public class VuforiaFTC {
              * even when the view does not include a target, and is self-consistent when the
              * view includes multiple targets
              */
-            OpenGLMatrix newLocation = ((VuforiaTrackableDefaultListener) trackable.getListener()).getUpdatedRobotLocation();
+            OpenGLMatrix newLocation = source.getUpdatedRobotLocation(t);
+            long captured = 0;
             if (newLocation != null) {
-                // Extract our location from the matrix
-                for (int i = 0; i < location.length; i++) {
-                    location[i] = (int) newLocation.get(i, 3);
+                // Without a pose we cannot judge the fix; count it, but only just
+                if (weight <= 0) {
+                    weight = FUSION_MIN_WEIGHT;
                 }
 
-                // Calculate the orientation of our view
-                Orientation newOrientation = Orientation.getOrientation(newLocation, AXES_REFERENCE, AxesOrder.XYZ, ANGLE_UNIT);
-                orientation[0] = (int) newOrientation.firstAngle;
-                orientation[1] = (int) newOrientation.secondAngle;
-                orientation[2] = (int) newOrientation.thirdAngle;
+                // Accumulate our location from the matrix
+                for (int i = 0; i < fusedLocation.length; i++) {
+                    fusedLocation[i] += weight * newLocation.get(i, 3);
+                }
+                fusedWeight += weight;
+
+                // Euler angles do not average cleanly; take the orientation of the best view
+                if (weight > bestWeight) {
+                    orientationXYZ(newLocation, angles);
+                    pollOrientation[0] = angles[0];
+                    pollOrientation[1] = angles[1];
+                    pollOrientation[2] = angles[2];
+                    pollRange = range;
+                    pollObliquity = obliquity;
+                    bestWeight = weight;
+                }
+
+                // Prefer the frame delivery time over our poll time
+                captured = source.getCaptured(t);
+                if (captured <= 0) {
+                    captured = System.currentTimeMillis();
+                }
+                newest = Math.max(newest, captured);
+            }
+
+            if (recorder != null) {
+                recorder.target(visible, newPose, newLocation, captured);
+            }
+        }
 
-                // Timestamp the update
-                timestamp = System.currentTimeMillis();
+        // Weighted mean of all targets that produced a location this round
+        if (fusedWeight > 0) {
+            for (int i = 0; i < pollLocation.length; i++) {
+                pollLocation[i] = fusedLocation[i] / fusedWeight;
+            }
+            pollTimestamp = newest;
+            changed = true;
+        }
+        pollProbe.stop(start);
+        return changed;
+    }
+
+    // Relative confidence in a target's fix: falls off with the square of the distance to the
+    // target and with the cosine of the angle between the target plane and the image sensor
+    private static float fusionWeight(float range, float angle) {
+        float scaled = range / FUSION_RANGE;
+        float cos = Math.max(FUSION_MIN_COS, (float) Math.cos(Math.toRadians(angle)));
+        return cos / Math.max(scaled * scaled, FUSION_MIN_WEIGHT);
+    }
+
+    // Distance from the image sensor to a target, given its pose in the camera frame
+    private static float poseRange(OpenGLMatrix pose) {
+        float x = pose.get(0, 3);
+        float y = pose.get(1, 3);
+        float z = pose.get(2, 3);
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+
+    // Score the latest fix and apply it if it passes
+    private void gate() {
+        float geometry = ramp(fixRange, RANGE_GOOD, RANGE_POOR) *
+                ramp(Math.abs(fixObliquity), OBLIQUITY_GOOD, OBLIQUITY_POOR);
+        float score = geometry * consistency();
+        boolean reseed = (rejectStreak >= QUALITY_MAX_REJECTS && geometry >= QUALITY_MIN);
+        if (score < QUALITY_MIN && !reseed) {
+            rejected++;
+            rejectStreak++;
+            return;
+        }
+
+        rejectStreak = 0;
+        quality = score;
+        timestamp = fixTimestamp;
+        System.arraycopy(fixLocation, 0, locationPrecise, 0, locationPrecise.length);
+        System.arraycopy(fixOrientation, 0, orientationPrecise, 0, orientationPrecise.length);
+
+        // Later motion is measured from here, however long the fix stays current
+        fixSnapped = (odometry != null && !history.isEmpty());
+        if (fixSnapped) {
+            fixHeading = history.headingAt(timestamp);
+            fixDistance = history.distanceAt(timestamp);
+        }
+    }
+
+    // Agreement of the latest fix with the accepted track carried forward to the fix time
+    private float consistency() {
+        if (timestamp == 0) {
+            return 1.0f;
+        }
+
+        double x = locationPrecise[0];
+        double y = locationPrecise[1];
+        double allowance = JUMP_GOOD;
+        float turnScore = 1.0f;
+        // Motion since the accepted fix, from its snapshot to the new fix's capture time
+        if (fixSnapped) {
+            int turn = history.headingAt(fixTimestamp) - fixHeading;
+            int travel = history.distanceAt(fixTimestamp) - fixDistance;
+            double mid = Math.toRadians(getHeadingRaw() + (turn / 2.0));
+            x += travel * Math.sin(mid);
+            y += travel * Math.cos(mid);
+
+            double predicted = getHeadingRaw() + turn;
+            double error = Geometry.angleDiff(headingOf(fixOrientation), predicted);
+            turnScore = ramp((float) Math.abs(error), TURN_GOOD, TURN_POOR);
+        } else {
+            allowance += MAX_SPEED * (fixTimestamp - timestamp);
+        }
+
+        double jump = Math.hypot(fixLocation[0] - x, fixLocation[1] - y);
+        return ramp((float) jump, (float) allowance, (float) allowance + (JUMP_POOR - JUMP_GOOD)) * turnScore;
+    }
+
+    // 1.0 at or below good, 0.0 at or above poor, linear between
+    private static float ramp(float value, float good, float poor) {
+        if (value <= good) {
+            return 1.0f;
+        } else if (value >= poor) {
+            return 0.0f;
+        }
+        return 1.0f - ((value - good) / (poor - good));
+    }
+
+    /**
+     * Sample odometry and carry the last fix forward to the present
+     * <p>
+     * {@link #track()} does this itself. Call it on loops that skip track(), such as while
+     * DriveTo has control, so no motion goes unrecorded.
+     */
+    public void updateOdometry() {
+        if (odometry == null) {
+            return;
+        }
+        history.record(System.currentTimeMillis(), odometry.odometryHeading(), odometry.odometryDistance());
+        extrapolate();
+    }
+
+    // Carry the last fix forward by the odometry motion since its capture time
+    private void extrapolate() {
+        if (!fixSnapped || history.isEmpty()) {
+            return;
+        }
+
+        int travel = history.latestDistance() - fixDistance;
+        extrapHeading = history.latestHeading() - fixHeading;
+
+        // Assume a constant turn rate over the interval and use the midpoint heading
+        double mid = Math.toRadians(getHeadingRaw() + (extrapHeading / 2.0));
+        extrapX = travel * Math.sin(mid);
+        extrapY = travel * Math.cos(mid);
+    }
+
+    // Poll on a background thread, publishing a new snapshot whenever the track changes
+    private class Tracker implements Runnable {
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    if (poll()) {
+                        snapshot.set(new VuforiaPose(pollTimestamp, pollLocation, pollOrientation,
+                                pollVisible, pollAngle, pollRange, pollObliquity));
+                    }
+                    try {
+                        Thread.sleep(TRACK_INTERVAL);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            } finally {
+                closeSources();
             }
         }
     }
 
     public void display(Telemetry telemetry) {
 
+        // Nothing to show until the engine is up
+        if (!ready) {
+            telemetry.addData("Vuforia", failed ? "Initialization failed" : "Initializing...");
+            return;
+        }
+
         // Is the location track valid?
         telemetry.addData("Valid", isStale() ? "No" : "Yes");
+        telemetry.addData("Quality", "%.2f (%d rejected)", quality, rejected);
 
         // List of visible targets (if any)
         String visibleStr = "";
-        for (String target : targetVisible.keySet()) {
-            if (getVisible(target)) {
+        for (int i = 0; i < targetVisible.length; i++) {
+            if (targetVisible[i]) {
                 if (!visibleStr.isEmpty()) {
                     visibleStr += ", ";
                 }
-                visibleStr += target;
+                visibleStr += CONFIG_TARGETS[i].name;
             }
         }
         if (visibleStr.isEmpty()) {
@@ -188,9 +808,9 @@ public class VuforiaFTC {
         telemetry.addData("Visible", visibleStr);
 
         // Angle to each visible target (if any)
-        for (String target : targetVisible.keySet()) {
-            if (getVisible(target)) {
-                telemetry.addData(target + " ∠", getTargetAngle(target) + "°");
+        for (int i = 0; i < targetVisible.length; i++) {
+            if (targetVisible[i]) {
+                telemetry.addData(CONFIG_TARGETS[i].name + " ∠", targetAngle[i] + "°");
             }
         }
 
@@ -201,30 +821,69 @@ public class VuforiaFTC {
     /**
      * Getters
      */
-    public HashMap<String, Boolean> getVisible() {
+    public boolean[] getVisible() {
         return targetVisible;
     }
 
     /**
-     * @param target Name of the target of interest.
+     * @param index CONFIG_TARGETS index of the target of interest.
+     * @return True if the target was actively tracked in the last round of VuforiaFTC processing
+     */
+    public boolean getVisible(int index) {
+        return targetVisible[index];
+    }
+
+    /**
+     * @param target Name of the target of interest. Prefer {@link #getVisible(int)} in loops.
      * @return True if the target was actively tracked in the last round of VuforiaFTC processing
      */
     public boolean getVisible(String target) {
-        return targetVisible.get(target);
+        return targetVisible[getTargetIndex(target)];
     }
 
-    public HashMap<String, Integer> getTargetAngle() {
+    public int[] getTargetAngle() {
         return targetAngle;
     }
 
     /**
-     * @param target Name of the target of interest. Valid targets will also be visible per
-     *               {@link #getVisible(String)} getVisible(target)}
+     * @param index CONFIG_TARGETS index of the target of interest. Valid targets will also be
+     *              visible per {@link #getVisible(int)} getVisible(index)}
      * @return The angle to the target's plane relative to the plane of the phone's image sensor
      * (i.e. 0° is dead-on, negative sign denotes right-of-center)
      */
+    public int getTargetAngle(int index) {
+        return targetAngle[index];
+    }
+
+    /**
+     * @param target Name of the target of interest. Prefer {@link #getTargetAngle(int)} in loops.
+     * @return The angle to the target's plane relative to the plane of the phone's image sensor
+     */
     public int getTargetAngle(String target) {
-        return targetAngle.get(target);
+        return targetAngle[getTargetIndex(target)];
+    }
+
+    /**
+     * @param index CONFIG_TARGETS index of the target of interest.
+     * @return As {@link #getTargetAngle(int)}, without truncation to whole degrees
+     */
+    public float getTargetAnglePrecise(int index) {
+        return targetAnglePrecise[index];
+    }
+
+    /**
+     * @return The number of configured targets; valid indices are 0 through getTargetCount() - 1
+     */
+    public int getTargetCount() {
+        return targetVisible.length;
+    }
+
+    /**
+     * @param index CONFIG_TARGETS index of the target of interest.
+     * @return The configured name of the target
+     */
+    public String getTargetName(int index) {
+        return CONFIG_TARGETS[index].name;
     }
 
     /**
@@ -242,6 +901,22 @@ public class VuforiaFTC {
         return timestamp;
     }
 
+    /**
+     * @return 0.0 - 1.0 score of the last accepted fix, combining range and angle to the
+     * target with its agreement with the previous track and odometry
+     */
+    public float getQuality() {
+        return quality;
+    }
+
+    /**
+     * @return Number of fixes rejected as outliers since construction. Rejected fixes never
+     * update the location, heading or timestamp.
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
     /**
      * @return True when the last location update was more than trackingTimeout milliseconds ago
      */
@@ -261,36 +936,74 @@ public class VuforiaFTC {
      * @return The X component of the robot's last known location relative to the field center.
      * Negative values denote blue alliance side of field.
      * <p>
+     * Includes the odometry motion since the fix when {@link #setOdometry(OdometryListener)} is used.
+     * <p>
      * This value may be out-of-date. Most uses should include an evaluation of validity based on
      * {@link #isStale() isStale()} or {@link #getTimestamp() getTimestamp()}
      */
     public int getX() {
-        return location[0];
+        return (int) getXPrecise();
+    }
+
+    /**
+     * @return As {@link #getX()}, without truncation to whole millimeters
+     */
+    public double getXPrecise() {
+        return locationPrecise[0] + extrapX;
     }
 
     /**
      * @return The Y component of the robot's last known location relative to the field center.
      * Negative sign denotes audiance side of field.
      * <p>
+     * Includes the odometry motion since the fix when {@link #setOdometry(OdometryListener)} is used.
+     * <p>
      * This value may be out-of-date. Most uses should include an evaluation of validity based on
      * {@link #isStale() isStale()} or {@link #getTimestamp() getTimestamp()}
      */
     public int getY() {
-        return location[1];
+        return (int) getYPrecise();
+    }
+
+    /**
+     * @return As {@link #getY()}, without truncation to whole millimeters
+     */
+    public double getYPrecise() {
+        return locationPrecise[1] + extrapY;
     }
 
     /**
      * @return The robot's last known heading relative to the field.
      * <p>
+     * Includes the odometry rotation since the fix when {@link #setOdometry(OdometryListener)} is used.
+     * <p>
      * This value may be out-of-date. Most uses should include an evaluation of validity based on
      * {@link #isStale() isStale()} or {@link #getTimestamp() getTimestamp()}
      */
     public int getHeading() {
-        int heading = orientation[2];
-        if (orientation[0] < 0) {
+        return Geometry.normalize((int) Math.round(getHeadingPrecise()));
+    }
+
+    /**
+     * @return As {@link #getHeading()}, without rounding to whole degrees. Range [0, 360).
+     */
+    public double getHeadingPrecise() {
+        return Geometry.normalize(getHeadingRaw() + extrapHeading);
+    }
+
+    // Heading as of the last vision fix, without latency compensation
+    private double getHeadingRaw() {
+        return headingOf(orientationPrecise);
+    }
+
+    // The int getters flipped only at a whole degree below zero; keep that dead band so sensor
+    // noise on a level robot does not flip the heading
+    private double headingOf(float[] orientation) {
+        double heading = orientation[2];
+        if (orientation[0] <= -1) {
             heading -= FULL_CIRCLE / 2;
         }
-        return normalizeHeading(cartesianToCardinal(heading));
+        return Geometry.normalize(cartesianToCardinal(heading));
     }
 
     /**
@@ -302,18 +1015,17 @@ public class VuforiaFTC {
      * {@link #isStale() isStale()} or {@link #getTimestamp() getTimestamp()}
      */
     public int bearing(int x, int y) {
-        return bearing(new int[]{getX(), getY()}, new int[]{x, y});
+        return Geometry.normalize((int) Math.round(bearingPrecise(x, y)));
     }
 
     /**
-     * @param dest X,Y array of destination in the field plane
-     * @return Bearing from the current location to {x,y} with respect to field north
-     * <p>
-     * This value may be out-of-date. Most uses should include an evaluation of validity based on
-     * {@link #isStale() isStale()} or {@link #getTimestamp() getTimestamp()}
+     * @param x X component of destination in the field plane
+     * @param y Y component of destination in the field plane
+     * @return As {@link #bearing(int, int)}, computed from the full-precision location and
+     * without rounding to whole degrees. Range [0, 360).
      */
-    public int bearing(int[] dest) {
-        return bearing(dest[0], dest[1]);
+    public double bearingPrecise(double x, double y) {
+        return Geometry.bearing(getXPrecise(), getYPrecise(), x, y);
     }
 
     /**
@@ -336,29 +1048,28 @@ public class VuforiaFTC {
      * {@link #isStale() isStale()} or {@link #getTimestamp() getTimestamp()}
      */
     public int distance(int x, int y) {
-        return distance(new int[]{getX(), getY()}, new int[]{x, y});
+        return (int) distancePrecise(x, y);
     }
 
     /**
-     * @param index CONFIG_TARGETS index. Syntax helper for {@link #distance(int, int)} distance(int, int)}
-     * @return Distance from the current location to {x,y} with respect to field units (millimeters)
-     * <p>
-     * This value may be out-of-date. Most uses should include an evaluation of validity based on
-     * {@link #isStale() isStale()} or {@link #getTimestamp() getTimestamp()}
+     * @param x X component of destination in the field plane
+     * @param y Y component of destination in the field plane
+     * @return As {@link #distance(int, int)}, computed from the full-precision location and
+     * without truncation to whole millimeters
      */
-    public int distance(int index) {
-        return distance(CONFIG_TARGETS[index].adjusted[0], CONFIG_TARGETS[index].adjusted[1]);
+    public double distancePrecise(double x, double y) {
+        return Geometry.distance(getXPrecise(), getYPrecise(), x, y);
     }
 
     /**
-     * @param dest X,Y array of destination in the field plane
+     * @param index CONFIG_TARGETS index. Syntax helper for {@link #distance(int, int)} distance(int, int)}
      * @return Distance from the current location to {x,y} with respect to field units (millimeters)
      * <p>
      * This value may be out-of-date. Most uses should include an evaluation of validity based on
      * {@link #isStale() isStale()} or {@link #getTimestamp() getTimestamp()}
      */
-    public int distance(int[] dest) {
-        return distance(dest[0], dest[1]);
+    public int distance(int index) {
+        return distance(CONFIG_TARGETS[index].adjusted[0], CONFIG_TARGETS[index].adjusted[1]);
     }
 
     public void setTrackingTimeout(int timeout) {
@@ -373,17 +1084,12 @@ public class VuforiaFTC {
      * Helpers
      */
 
-    // Bearing from x1,y1 to x2,y2 in degrees
-    // Motion from south to north is correlated with increasing Y components in field locations
-    private int bearing(int[] src, int[] dest) {
-        double bearing = Math.atan2(dest[1] - src[1], dest[0] - src[0]);
-        bearing = Math.toDegrees(bearing);
-        return normalizeHeading(cartesianToCardinal((int) bearing));
-    }
-
-    // Distance from x1,y1 to x2,y2 in field location units (millimeters)
-    private int distance(int[] src, int[] dest) {
-        return (int) Math.hypot((dest[1] - src[1]), (dest[0] - src[0]));
+    private void applyMaxSimultaneous() {
+        int max = maxSimultaneous;
+        if (max <= 0 || max > CONFIG_TARGETS_NUM) {
+            max = CONFIG_TARGETS_NUM;
+        }
+        com.vuforia.Vuforia.setHint(HINT.HINT_MAX_SIMULTANEOUS_IMAGE_TARGETS, max);
     }
 
     // It's like a macro, but for Java
@@ -402,24 +1108,61 @@ public class VuforiaFTC {
             return;
         }
 
-        // Per-target hashmaps, by name
+        // Name lookup and per-target state
         targetIndex.put(CONFIG_TARGETS[index].name, index);
-        targetVisible.put(CONFIG_TARGETS[index].name, false);
-        targetAngle.put(CONFIG_TARGETS[index].name, 0);
+        targetVisible[index] = false;
+        targetAngle[index] = 0;
 
         // Location model parameters
         VuforiaTrackable trackable = trackables.get(index);
         trackable.setName(CONFIG_TARGETS[index].name);
+        trackable.setListener(new TimestampedListener(trackable));
         OpenGLMatrix location = positionRotationMatrix(CONFIG_TARGETS[index].raw,
                 CONFIG_TARGETS[index].rotation, CONFIG_TARGETS[index].axesOrder);
         trackable.setLocation(location);
     }
 
-    private int normalizeHeading(int heading) {
-        return ((heading % FULL_CIRCLE) + FULL_CIRCLE) % FULL_CIRCLE;
+    /**
+     * Allocation-free equivalent of
+     * Orientation.getOrientation(matrix, AxesReference.EXTRINSIC, AxesOrder.XYZ, AngleUnit.DEGREES)
+     * <p>
+     * Like the SDK, both valid angle sets are computed and the one with the smaller magnitude wins
+     */
+    private void orientationXYZ(OpenGLMatrix m, float[] out) {
+        float test = m.get(2, 0);
+        if (test == -1) {
+            // Gimbal lock
+            out[0] = 0;
+            out[1] = (float) ANGLE_UNIT.fromRadians(Math.PI / 2);
+            out[2] = (float) ANGLE_UNIT.fromRadians(-Math.atan2(m.get(0, 1), m.get(0, 2)));
+            return;
+        } else if (test == 1) {
+            // Gimbal lock
+            out[0] = 0;
+            out[1] = (float) ANGLE_UNIT.fromRadians(-Math.PI / 2);
+            out[2] = (float) ANGLE_UNIT.fromRadians(Math.atan2(-m.get(0, 1), m.get(1, 1)));
+            return;
+        }
+
+        orientationXYZ(m, -Math.asin(test), out);
+        orientationXYZ(m, Math.PI + Math.asin(test), anglesAlt);
+        if (magnitude(anglesAlt) < magnitude(out)) {
+            System.arraycopy(anglesAlt, 0, out, 0, out.length);
+        }
+    }
+
+    private void orientationXYZ(OpenGLMatrix m, double second, float[] out) {
+        double cos = Math.cos(second);
+        out[0] = (float) ANGLE_UNIT.fromRadians(Math.atan2(m.get(2, 1) / cos, m.get(2, 2) / cos));
+        out[1] = (float) ANGLE_UNIT.fromRadians(second);
+        out[2] = (float) ANGLE_UNIT.fromRadians(Math.atan2(m.get(1, 0) / cos, m.get(0, 0) / cos));
+    }
+
+    private float magnitude(float[] v) {
+        return (v[0] * v[0]) + (v[1] * v[1]) + (v[2] * v[2]);
     }
 
-    private int cartesianToCardinal(int heading) {
+    private double cartesianToCardinal(double heading) {
         return FULL_CIRCLE - (heading + HEADING_OFFSET);
     }
 }
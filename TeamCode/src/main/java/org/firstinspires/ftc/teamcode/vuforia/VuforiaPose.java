@@ -0,0 +1,87 @@
+package org.firstinspires.ftc.teamcode.vuforia;
+
+/**
+ * Immutable snapshot of the VuforiaFTC track, published by the background tracking thread
+ */
+public class VuforiaPose {
+    public final long timestamp;
+
+    private final float[] location;
+    private final float[] orientation;
+    private final boolean[] visible;
+    private final float[] angle;
+    private final float range;
+    private final float obliquity;
+
+    VuforiaPose(long timestamp, float[] location, float[] orientation, boolean[] visible, float[] angle,
+                float range, float obliquity) {
+        this.timestamp = timestamp;
+        this.range = range;
+        this.obliquity = obliquity;
+        this.location = location.clone();
+        this.orientation = orientation.clone();
+        this.visible = visible.clone();
+        this.angle = angle.clone();
+    }
+
+    /**
+     * @return System.currentTimeMillis() as reported at the time of the location update
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getLocation(int axis) {
+        return (int) location[axis];
+    }
+
+    public float getLocationPrecise(int axis) {
+        return location[axis];
+    }
+
+    public int getOrientation(int axis) {
+        return (int) orientation[axis];
+    }
+
+    public float getOrientationPrecise(int axis) {
+        return orientation[axis];
+    }
+
+    /**
+     * @return Distance (mm) to the target that dominated the location fix
+     */
+    public float getRange() {
+        return range;
+    }
+
+    /**
+     * @return Angle between that target's plane and the image sensor plane (degrees)
+     */
+    public float getObliquity() {
+        return obliquity;
+    }
+
+    public int getTargetCount() {
+        return visible.length;
+    }
+
+    public boolean getVisible(int index) {
+        return visible[index];
+    }
+
+    public int getTargetAngle(int index) {
+        return (int) angle[index];
+    }
+
+    public float getTargetAnglePrecise(int index) {
+        return angle[index];
+    }
+
+    // Copy into caller-owned arrays without exposing our own
+    void copyTo(float[] location, float[] orientation, boolean[] visible, float[] angle) {
+        System.arraycopy(this.location, 0, location, 0, location.length);
+        System.arraycopy(this.orientation, 0, orientation, 0, orientation.length);
+        System.arraycopy(this.visible, 0, visible, 0, visible.length);
+        System.arraycopy(this.angle, 0, angle, 0, angle.length);
+    }
+}
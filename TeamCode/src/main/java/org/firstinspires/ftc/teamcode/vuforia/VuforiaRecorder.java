@@ -0,0 +1,149 @@
+package org.firstinspires.ftc.teamcode.vuforia;
+
+import android.os.Environment;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.external.matrices.OpenGLMatrix;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary log of every VuforiaFTC poll, for playback with {@link VuforiaReplay}
+ * <p>
+ * Format (big-endian, per DataOutputStream):
+ * <pre>
+ * header: int MAGIC, byte VERSION, byte targetCount
+ * frame:  long pollTime, then per target:
+ *         byte flags (FLAG_*)
+ *         [16 floats pose, column-major]          if FLAG_POSE
+ *         [long captured, 16 floats location]     if FLAG_LOCATION
+ * </pre>
+ * Write errors disable the recorder rather than disturbing the caller.
+ */
+public class VuforiaRecorder {
+    static final int MAGIC = 0x56465231; // "VFR1"
+    static final byte VERSION = 1;
+    static final int MATRIX_SIZE = 16;
+
+    static final int FLAG_VISIBLE = 0x01;
+    static final int FLAG_POSE = 0x02;
+    static final int FLAG_LOCATION = 0x04;
+
+    private static final String LOG_DIR = "FIRST";
+    private static final String LOG_PREFIX = "vuforia-";
+    private static final String LOG_SUFFIX = ".bin";
+
+    private final File file;
+    private final int targets;
+    private DataOutputStream out;
+    private int frames = 0;
+
+    public VuforiaRecorder(File file, int targets) throws IOException {
+        this.file = file;
+        this.targets = targets;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(targets);
+    }
+
+    /**
+     * @return A new timestamped log file in the FIRST directory on the phone's storage
+     */
+    public static File defaultFile() {
+        File dir = new File(Environment.getExternalStorageDirectory(), LOG_DIR);
+        return new File(dir, LOG_PREFIX + System.currentTimeMillis() + LOG_SUFFIX);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getTargetCount() {
+        return targets;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    public boolean isOpen() {
+        return out != null;
+    }
+
+    /**
+     * Start a frame. Must be followed by exactly one {@link #target} call per target.
+     */
+    void frame(long time) {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.writeLong(time);
+            frames++;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    void target(boolean visible, OpenGLMatrix pose, OpenGLMatrix location, long captured) {
+        if (out == null) {
+            return;
+        }
+        int flags = 0;
+        if (visible) {
+            flags |= FLAG_VISIBLE;
+        }
+        if (pose != null) {
+            flags |= FLAG_POSE;
+        }
+        if (location != null) {
+            flags |= FLAG_LOCATION;
+        }
+        try {
+            out.writeByte(flags);
+            if (pose != null) {
+                writeMatrix(pose);
+            }
+            if (location != null) {
+                out.writeLong(captured);
+                writeMatrix(location);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            RobotLog.e("Unable to close Vuforia log " + file.getName() + ": " + e.getMessage());
+        }
+        out = null;
+    }
+
+    private void writeMatrix(OpenGLMatrix m) throws IOException {
+        float[] data = m.getData();
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            out.writeFloat(data[i]);
+        }
+    }
+
+    private void fail(IOException e) {
+        RobotLog.e("Unable to write Vuforia log " + file.getName() + ": " + e.getMessage());
+        try {
+            out.close();
+        } catch (IOException ignored) {
+        }
+        out = null;
+    }
+}
@@ -0,0 +1,194 @@
+package org.firstinspires.ftc.teamcode.vuforia;
+
+import org.firstinspires.ftc.robotcore.external.matrices.OpenGLMatrix;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * VuforiaSource that plays back a {@link VuforiaRecorder} log
+ * <p>
+ * Recorded frames are released on the live clock, scaled by the playback speed, and capture
+ * times are shifted onto the live clock so staleness and latency compensation behave as they
+ * did on the field. Fixes in frames skipped between updates are not lost; the newest one is
+ * delivered. Does not depend on the Vuforia engine or Android, so navigation code can be run
+ * against a recorded session on a workstation.
+ */
+public class VuforiaReplay implements VuforiaSource {
+    // Release exactly one frame per update(), regardless of recorded timing
+    public static final double SPEED_STEP = 0;
+    public static final double SPEED_REALTIME = 1.0;
+
+    private final DataInputStream in;
+    private final int targets;
+    private final double speed;
+
+    // Read-ahead frame time
+    private long nextTime = 0;
+    private boolean finished = false;
+
+    // Clock mapping, fixed at the first update()
+    private long wallStart = 0;
+    private long logStart = 0;
+
+    // Current per-target data
+    private final boolean[] visible;
+    private final boolean[] hasPose;
+    private final boolean[] hasLocation;
+    private final long[] captured;
+    private final OpenGLMatrix[] pose;
+    private final OpenGLMatrix[] location;
+
+    public VuforiaReplay(File file, double speed) throws IOException {
+        this(new FileInputStream(file), speed);
+    }
+
+    /**
+     * @param speed Playback rate relative to the recording, e.g. {@link #SPEED_REALTIME} or
+     *              4.0 for 4× accelerated; {@link #SPEED_STEP} for one frame per update
+     */
+    public VuforiaReplay(InputStream stream, double speed) throws IOException {
+        if (speed < 0) {
+            throw new IllegalArgumentException("VuforiaReplay speed must be non-negative: " + speed);
+        }
+        this.speed = speed;
+        in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != VuforiaRecorder.MAGIC) {
+            throw new IOException("Not a Vuforia log");
+        }
+        int version = in.readByte();
+        if (version != VuforiaRecorder.VERSION) {
+            throw new IOException("Unsupported Vuforia log version: " + version);
+        }
+        targets = in.readByte();
+
+        visible = new boolean[targets];
+        hasPose = new boolean[targets];
+        hasLocation = new boolean[targets];
+        captured = new long[targets];
+        pose = new OpenGLMatrix[targets];
+        location = new OpenGLMatrix[targets];
+        for (int i = 0; i < targets; i++) {
+            // The no-arg constructor calls into android.opengl; this one does not
+            pose[i] = new OpenGLMatrix(new float[VuforiaRecorder.MATRIX_SIZE]);
+            location[i] = new OpenGLMatrix(new float[VuforiaRecorder.MATRIX_SIZE]);
+        }
+        readTime();
+    }
+
+    @Override
+    public void update() {
+        if (finished) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (wallStart == 0) {
+            wallStart = now;
+            logStart = nextTime;
+        }
+
+        if (speed == SPEED_STEP) {
+            readFrame(now);
+            return;
+        }
+        double elapsed = (now - wallStart) * speed;
+        while (!finished && (nextTime - logStart) <= elapsed) {
+            readFrame(replayTime(nextTime));
+        }
+    }
+
+    /**
+     * @return True when every recorded frame has been released
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        try {
+            in.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public int getTargetCount() {
+        return targets;
+    }
+
+    @Override
+    public boolean isVisible(int index) {
+        return visible[index];
+    }
+
+    @Override
+    public OpenGLMatrix getPose(int index) {
+        return hasPose[index] ? pose[index] : null;
+    }
+
+    @Override
+    public OpenGLMatrix getUpdatedRobotLocation(int index) {
+        if (!hasLocation[index]) {
+            return null;
+        }
+        hasLocation[index] = false;
+        return location[index];
+    }
+
+    @Override
+    public long getCaptured(int index) {
+        return captured[index];
+    }
+
+    // Map a recorded time onto the live clock
+    private long replayTime(long time) {
+        return wallStart + (long) ((time - logStart) / speed);
+    }
+
+    private void readTime() {
+        try {
+            nextTime = in.readLong();
+        } catch (IOException e) {
+            // End of log
+            close();
+        }
+    }
+
+    // Apply the frame whose time we have already read, then read ahead
+    private void readFrame(long frameTime) {
+        try {
+            for (int t = 0; t < targets; t++) {
+                int flags = in.readByte();
+                visible[t] = (flags & VuforiaRecorder.FLAG_VISIBLE) != 0;
+                hasPose[t] = (flags & VuforiaRecorder.FLAG_POSE) != 0;
+                if (hasPose[t]) {
+                    readMatrix(pose[t]);
+                }
+                if ((flags & VuforiaRecorder.FLAG_LOCATION) != 0) {
+                    long time = in.readLong();
+                    readMatrix(location[t]);
+                    captured[t] = (speed == SPEED_STEP) ? frameTime : replayTime(time);
+                    hasLocation[t] = true;
+                }
+            }
+        } catch (IOException e) {
+            // Truncated log; keep what we have
+            close();
+            return;
+        }
+        readTime();
+    }
+
+    private void readMatrix(OpenGLMatrix m) throws IOException {
+        float[] data = m.getData();
+        for (int i = 0; i < VuforiaRecorder.MATRIX_SIZE; i++) {
+            data[i] = in.readFloat();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.firstinspires.ftc.teamcode.vuforia;
+
+import org.firstinspires.ftc.robotcore.external.matrices.OpenGLMatrix;
+
+/**
+ * Per-target tracking data consumed by VuforiaFTC, indexed by CONFIG_TARGETS index
+ * <p>
+ * The live implementation wraps the Vuforia trackable listeners; {@link VuforiaReplay} plays
+ * back a session captured by {@link VuforiaRecorder}. Matrices returned here are only valid
+ * until the next {@link #update()}.
+ */
+public interface VuforiaSource {
+    /**
+     * Advance to the newest available data. Called once at the start of each poll.
+     */
+    void update();
+
+    int getTargetCount();
+
+    boolean isVisible(int index);
+
+    /**
+     * @return The target's pose in the camera frame, or null if not tracked
+     */
+    OpenGLMatrix getPose(int index);
+
+    /**
+     * @return The robot location derived from this target, or null if there is no new fix
+     * since the last call
+     */
+    OpenGLMatrix getUpdatedRobotLocation(int index);
+
+    /**
+     * @return System.currentTimeMillis() at the target's last tracked frame, or 0 if unknown
+     */
+    long getCaptured(int index);
+
+    /**
+     * Release the source. Called once by VuforiaFTC after the last poll.
+     */
+    void close();
+}
@@ -4,6 +4,8 @@ import com.qualcomm.robotcore.hardware.DcMotorSimple;
 import com.qualcomm.robotcore.hardware.Gamepad;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
+import org.firstinspires.ftc.teamcode.instrument.Instrument;
+
 public class TankDrive {
     private static final int MIN_MOTORS = 2;
 
@@ -30,6 +32,8 @@ public class TankDrive {
             this.motors = motors;
             for (TankMotor motor : this.motors) {
                 motor.motor = map.dcMotor.get(motor.name);
+                motor.powerProbe = Instrument.probe(motor.name, "power");
+                motor.encoderProbe = Instrument.probe(motor.name, "encoder");
                 if (motor.reverse) {
                     motor.motor.setDirection(DcMotorSimple.Direction.REVERSE);
                 }
@@ -56,7 +60,10 @@ public class TankDrive {
         if (index < 0 || index >= motors.length) {
             throw new ArrayIndexOutOfBoundsException("Invalid TankMotors index: " + index);
         }
-        return (int) ((double) motors[index].motor.getCurrentPosition() * encoderScale);
+        long start = Instrument.start();
+        int position = motors[index].motor.getCurrentPosition();
+        motors[index].encoderProbe.stop(start);
+        return (int) ((double) position * encoderScale);
     }
 
     // --Commented out by Inspection START (2017-01-13, 11:20 AM):
@@ -78,7 +85,7 @@ public class TankDrive {
             return;
         }
         for (TankMotor motor : motors) {
-            motor.motor.setPower(speed * speedScale);
+            setPower(motor, speed * speedScale);
         }
     }
 
@@ -88,7 +95,7 @@ public class TankDrive {
         }
         for (TankMotor motor : motors) {
             if (motor.side == side) {
-                motor.motor.setPower(speed * speedScale);
+                setPower(motor, speed * speedScale);
             }
         }
     }
@@ -113,7 +120,7 @@ public class TankDrive {
             return;
         }
         for (TankMotor motor : motors) {
-            motor.motor.setPower(0.0d);
+            setPower(motor, 0.0d);
         }
     }
 
@@ -166,6 +173,12 @@ public class TankDrive {
         this.setSpeed(right, MotorSide.RIGHT);
     }
 
+    private void setPower(TankMotor motor, double power) {
+        long start = Instrument.start();
+        motor.motor.setPower(power);
+        motor.powerProbe.stop(start);
+    }
+
     private float cleanJoystick(float power) {
         power = com.qualcomm.robotcore.util.Range.clip(power, -1f, 1f);
         if (power < 0.1 && power > -0.1) {
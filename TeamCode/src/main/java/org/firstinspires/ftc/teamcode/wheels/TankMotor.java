@@ -2,11 +2,15 @@ package org.firstinspires.ftc.teamcode.wheels;
 
 import com.qualcomm.robotcore.hardware.DcMotor;
 
+import org.firstinspires.ftc.teamcode.instrument.Probe;
+
 public class TankMotor {
     public MotorSide side;
     public String name;
     public DcMotor motor;
     public boolean reverse;
+    public Probe powerProbe;
+    public Probe encoderProbe;
 
     public TankMotor(String name, MotorSide side) {
         this(name, side, false);
@@ -17,6 +21,8 @@ public class TankMotor {
         this.side = side;
         this.motor = null;
         this.reverse = reverse;
+        this.powerProbe = null;
+        this.encoderProbe = null;
     }
 
     public boolean isAvailable() {